@@ -53,6 +53,12 @@ public class ChatClient {
         return blocking.getPage(GetPageRequest.newBuilder()
                 .setConversationId(conversationId).setCallerId(callerId).setPage(page).setSize(size).build());
     }
+    /** Keyset paging; an empty cursor starts from the newest message. */
+    public MessagePage getPageBefore(long conversationId, long callerId, String cursor, int size) {
+        return blocking.getPage(GetPageRequest.newBuilder()
+                .setConversationId(conversationId).setCallerId(callerId)
+                .setKeyset(true).setCursor(cursor == null ? "" : cursor).setSize(size).build());
+    }
     public MessageList getLatest(long conversationId, long callerId, int limit) {
         return blocking.getLatest(GetLatestRequest.newBuilder()
                 .setConversationId(conversationId).setCallerId(callerId).setLimit(limit).build());
@@ -71,6 +77,10 @@ public class ChatClient {
     public ConversationList myConversations(long userId) {
         return blocking.myConversations(IdRequest.newBuilder().setId(userId).build());
     }
+    public InboxPage inbox(long userId, int page, int size) {
+        return blocking.getInbox(GetInboxRequest.newBuilder()
+                .setUserId(userId).setPage(page).setSize(size).build());
+    }
 
     public void deleteUserData(long userId) {
         blocking.deleteUserData(IdRequest.newBuilder().setId(userId).build());
@@ -26,18 +26,35 @@ public class ChatController {
         return ResponseEntity.ok(toRow(c));
     }
 
+    /**
+     * History paging. Passing {@code cursor} (empty for the first page)
+     * switches to keyset mode: no total is computed and every page costs the
+     * same however deep the client scrolls. Without it the legacy
+     * {@code page}/{@code total} shape is returned.
+     */
     @GetMapping("/conversations/{id}/messages")
     public ResponseEntity<?> page(@PathVariable long id,
                                   @RequestParam(defaultValue = "0") int page,
-                                  @RequestParam(defaultValue = "30") int size) {
+                                  @RequestParam(defaultValue = "30") int size,
+                                  @RequestParam(required = false) String cursor) {
         long me = CurrentUser.require().id();
+        if (cursor != null) {
+            MessagePage p = chat.getPageBefore(id, me, cursor, size);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("messages", p.getMessagesList().stream().map(ChatController::toMessage).toList());
+            body.put("size", p.getSize());
+            body.put("nextCursor", p.getNextCursor().isEmpty() ? null : p.getNextCursor());
+            body.put("hasMore", p.getHasMore());
+            return ResponseEntity.ok(body);
+        }
         MessagePage p = chat.getPage(id, me, page, size);
-        return ResponseEntity.ok(Map.of(
-                "messages", p.getMessagesList().stream().map(ChatController::toMessage).toList(),
-                "page", p.getPage(),
-                "size", p.getSize(),
-                "total", p.getTotal()
-        ));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("messages", p.getMessagesList().stream().map(ChatController::toMessage).toList());
+        body.put("page", p.getPage());
+        body.put("size", p.getSize());
+        body.put("total", p.getTotal());
+        body.put("nextCursor", p.getNextCursor().isEmpty() ? null : p.getNextCursor());
+        return ResponseEntity.ok(body);
     }
 
     @GetMapping("/conversations/{id}/latest")
@@ -127,6 +144,34 @@ public class ChatController {
         return ResponseEntity.ok(rows);
     }
 
+    /**
+     * Conversation list in one call: each row carries the conversation, its
+     * last message ({@code null} if none), unread count and mute/pin state.
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<?> inbox(@RequestParam(defaultValue = "0") int page,
+                                   @RequestParam(defaultValue = "30") int size) {
+        long me = CurrentUser.require().id();
+        InboxPage p = chat.inbox(me, page, size);
+        List<Map<String, Object>> entries = p.getEntriesList().stream().map(e -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("conversation", toRow(e.getConversation()));
+            row.put("lastMessage", e.hasLastMessage() ? toMessage(e.getLastMessage()) : null);
+            row.put("unreadCount", e.getUnreadCount());
+            row.put("muted", e.getMuted());
+            row.put("pinned", e.getPinned());
+            row.put("lastActivityAtMillis", e.getLastActivityAtMillis());
+            return row;
+        }).toList();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("entries", entries);
+        body.put("page", p.getPage());
+        body.put("size", p.getSize());
+        body.put("total", p.getTotal());
+        body.put("hasMore", p.getHasMore());
+        return ResponseEntity.ok(body);
+    }
+
     // --- helpers -----------------------------------------------------------
 
     private static Map<String, Object> toRow(Conversation c) {
@@ -4,6 +4,7 @@ import com.serdar.common.grpc.GrpcActorContext;
 import com.serdar.gateway.client.ChatClient;
 import com.serdar.proto.chat.ChatEvent;
 import io.grpc.Context;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -61,15 +62,28 @@ public class WsBridgeService {
         String sessionId = acc.getSessionId();
         if (acc.getUser() == null || sessionId == null) return;
         long userId = Long.parseLong(acc.getUser().getName());
+        sessions.put(sessionId, openStream(userId, sessionId));
+        log.debug("WS bridge subscribed user {} (session {})", userId, sessionId);
+    }
 
+    private Context.CancellableContext openStream(long userId, String sessionId) {
         StreamObserver<ChatEvent> observer = new StreamObserver<>() {
             @Override public void onNext(ChatEvent e)       { dispatch(userId, e); }
-            @Override public void onError(Throwable t)      { log.warn("Chat stream error for user {}: {}", userId, t.getMessage()); }
+            @Override public void onError(Throwable t)      { onStreamError(userId, sessionId, t); }
             @Override public void onCompleted()             { log.debug("Chat stream completed for user {}", userId); }
         };
-        Context.CancellableContext ctx = chat.subscribeEvents(userId, observer);
-        sessions.put(sessionId, ctx);
-        log.debug("WS bridge subscribed user {} (session {})", userId, sessionId);
+        return chat.subscribeEvents(userId, observer);
+    }
+
+    /**
+     * chat-service closes a stream with RESOURCE_EXHAUSTED when we fell too far
+     * behind reading it. The STOMP session is still healthy, so open a fresh
+     * stream; its presence snapshot resyncs the client.
+     */
+    private void onStreamError(long userId, String sessionId, Throwable t) {
+        log.warn("Chat stream error for user {}: {}", userId, t.getMessage());
+        if (Status.fromThrowable(t).getCode() != Status.Code.RESOURCE_EXHAUSTED) return;
+        sessions.computeIfPresent(sessionId, (id, old) -> openStream(userId, sessionId));
     }
 
     @EventListener
@@ -1,5 +1,6 @@
 package com.serdar.auth.config;
 
+import com.serdar.common.cache.AccountFrozenEvent;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -11,7 +12,8 @@ import org.springframework.context.annotation.Configuration;
 /**
  * Producer-side AMQP wiring.
  *
- * Auth-service only publishes mail jobs — it doesn't consume from any queue.
+ * Auth-service only publishes (mail jobs and account frozen-state events) —
+ * it doesn't consume from any queue.
  * However we declare the exchange + queue + DLX/DLQ here too (idempotent
  * with mail-worker's identical declarations) to defeat a startup-ordering
  * trap: if auth-service comes up before mail-worker has run its
@@ -45,6 +47,11 @@ public class RabbitConfig {
     @Bean public Binding mailQueueBinding() { return BindingBuilder.bind(mailQueue()).to(mailExchange()).with(ROUTING_KEY); }
     @Bean public Binding mailDlqBinding()   { return BindingBuilder.bind(mailDlq()).to(mailDlx()).with(ROUTING_KEY); }
 
+    /** Frozen-state changes, fanned out to every chat-service and user-service instance. */
+    @Bean public FanoutExchange accountFrozenExchange() {
+        return ExchangeBuilder.fanoutExchange(AccountFrozenEvent.EXCHANGE).durable(true).build();
+    }
+
     @Bean public MessageConverter rabbitMessageConverter() { return new Jackson2JsonMessageConverter(); }
 
     @Bean
@@ -8,6 +8,7 @@ import com.serdar.common.ServiceException;
 import com.serdar.proto.auth.*;
 import com.serdar.proto.common.BoolResponse;
 import com.serdar.proto.common.Empty;
+import com.serdar.proto.common.IdList;
 import com.serdar.proto.common.IdRequest;
 import com.serdar.proto.common.StringRequest;
 import io.grpc.stub.StreamObserver;
@@ -191,6 +192,14 @@ public class AuthGrpcService extends AuthServiceGrpc.AuthServiceImplBase {
         });
     }
 
+    @Override
+    public void getFrozenStates(IdList req, StreamObserver<IdList> out) {
+        guard(out, () -> {
+            out.onNext(IdList.newBuilder().addAllIds(svc.frozenAmong(req.getIdsList())).build());
+            out.onCompleted();
+        });
+    }
+
     @Override
     public void getCredentialsByEmail(StringRequest req, StreamObserver<Credentials> out) {
         guard(out, () -> { out.onNext(toProto(svc.byEmail(req.getValue()))); out.onCompleted(); });
@@ -2,7 +2,11 @@ package com.serdar.auth.repository;
 
 import com.serdar.auth.entity.Credential;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CredentialRepository extends JpaRepository<Credential, Long> {
@@ -12,4 +16,7 @@ public interface CredentialRepository extends JpaRepository<Credential, Long> {
     Optional<Credential> findByResetCode(String code);
     boolean existsByEmail(String email);
     boolean existsByNickname(String nickname);
+
+    @Query("select c.id from Credential c where c.id in :ids and c.frozen = true")
+    List<Long> findFrozenIdsIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,47 @@
+package com.serdar.auth.service;
+
+import com.serdar.common.cache.AccountFrozenEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tells chat-service and user-service that an account's frozen state changed,
+ * so their {@link com.serdar.common.cache.FrozenStateCache} entries update
+ * right away. Best-effort like mail: a lost event only means the old value
+ * lives until its TTL runs out.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountEventPublisher {
+
+    private final RabbitTemplate rabbit;
+
+    /** Publishes once the surrounding transaction commits, so a rollback never leaks. */
+    public void frozenChangedAfterCommit(long userId, boolean frozen) {
+        AccountFrozenEvent event = new AccountFrozenEvent(userId, frozen);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event);
+            }
+        });
+    }
+
+    private void publish(AccountFrozenEvent event) {
+        try {
+            rabbit.convertAndSend(AccountFrozenEvent.EXCHANGE, "", event);
+        } catch (AmqpException e) {
+            log.warn("Frozen-state event for user {} not published: {}", event.userId(), e.getMessage());
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.regex.Pattern;
@@ -55,6 +56,7 @@ public class AuthDomainService {
     private final JwtIssuer            jwt;
     private final EmailService         email;
     private final RefreshTokenHasher   refreshHasher;
+    private final AccountEventPublisher accountEvents;
 
     @Value("${refresh.expiration.default}")  int refreshDefault;
     @Value("${refresh.expiration.remember}") int refreshRemember;
@@ -651,6 +653,12 @@ public class AuthDomainService {
         return repo.findById(userId).map(c -> Boolean.TRUE.equals(c.getFrozen())).orElse(false);
     }
 
+    /** Frozen subset of {@code userIds}; unknown ids count as not frozen, like {@link #isFrozen}. */
+    public List<Long> frozenAmong(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return List.of();
+        return repo.findFrozenIdsIn(userIds);
+    }
+
     @Transactional
     public void freezeAccount(long userId) {
         Credential c = repo.findById(userId)
@@ -660,6 +668,7 @@ public class AuthDomainService {
         c.setFrozenAt(LocalDateTime.now(ZoneOffset.UTC));
         repo.save(c);
         revokeAllSessions(userId);
+        accountEvents.frozenChangedAfterCommit(userId, true);
     }
 
     @Transactional
@@ -669,6 +678,7 @@ public class AuthDomainService {
         c.setFrozen(false);
         c.setFrozenAt(null);
         repo.save(c);
+        accountEvents.frozenChangedAfterCommit(userId, false);
     }
 
     @Transactional
@@ -0,0 +1,72 @@
+package com.serdar.chat.cache;
+
+import com.serdar.chat.entity.ConversationParticipant;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a conversation's active members, kept as parallel
+ * primitive arrays so a cached roster costs a few bytes per member.
+ */
+public final class ConversationRoster {
+
+    private static final byte MUTED = 1;
+    private static final byte ADMIN = 2;
+
+    private final long[] userIds;
+    private final byte[] flags;
+
+    private ConversationRoster(long[] userIds, byte[] flags) {
+        this.userIds = userIds;
+        this.flags = flags;
+    }
+
+    public static ConversationRoster of(List<ConversationParticipant> active) {
+        long[] ids = new long[active.size()];
+        byte[] flags = new byte[active.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ConversationParticipant p = active.get(i);
+            ids[i] = p.getUserId();
+            byte f = 0;
+            if (Boolean.TRUE.equals(p.getMuted())) f |= MUTED;
+            if ("ADMIN".equalsIgnoreCase(p.getRole())) f |= ADMIN;
+            flags[i] = f;
+        }
+        return new ConversationRoster(ids, flags);
+    }
+
+    public int size() {
+        return userIds.length;
+    }
+
+    public boolean isEmpty() {
+        return userIds.length == 0;
+    }
+
+    public long userId(int i) {
+        return userIds[i];
+    }
+
+    /** The member ids as a fresh list, for APIs that take a collection. */
+    public List<Long> userIds() {
+        List<Long> ids = new ArrayList<>(userIds.length);
+        for (long id : userIds) ids.add(id);
+        return ids;
+    }
+
+    public boolean muted(int i) {
+        return (flags[i] & MUTED) != 0;
+    }
+
+    public boolean admin(int i) {
+        return (flags[i] & ADMIN) != 0;
+    }
+
+    public boolean contains(long userId) {
+        for (long id : userIds) {
+            if (id == userId) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package com.serdar.chat.cache;
+
+import com.serdar.chat.client.UserClient;
+import com.serdar.chat.entity.Conversation;
+import com.serdar.chat.repository.ConversationParticipantRepository;
+import com.serdar.common.cache.FriendshipChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-user presence audience: friend ids plus the messaging groups the user
+ * belongs to, whose members come from {@link RosterCache}.
+ *
+ * An entry is built with one friend-id call and one join query, then patched
+ * in place: joins arrive with the roster invalidation, friendship changes as
+ * {@link FriendshipChangedEvent}s. Leaving a group needs no event because
+ * readers skip groups whose roster no longer contains the user. Friend lists
+ * come back without frozen accounts, so entries also expire after a while to
+ * pick up friends who unfroze.
+ *
+ * Every patch takes a version from a counter; a patch for a user with no
+ * entry leaves a marker instead. A build is only stored if no patch for the
+ * user arrived after it started, so an event that lands mid-build is not
+ * overwritten by the older view; the next read builds again.
+ */
+@Component
+@RequiredArgsConstructor
+public class PresenceAudienceIndex {
+
+    private static final int MAX_USERS = 50_000;
+    private static final long TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    public record Audience(Set<Long> friendIds, Set<Long> groupIds, long builtAtNanos) {
+
+        Audience withGroup(long conversationId) {
+            if (groupIds.contains(conversationId)) return this;
+            Set<Long> groups = new HashSet<>(groupIds);
+            groups.add(conversationId);
+            return new Audience(friendIds, Set.copyOf(groups), builtAtNanos);
+        }
+
+        Audience withFriend(long friendId, boolean friends) {
+            if (friendIds.contains(friendId) == friends) return this;
+            Set<Long> ids = new HashSet<>(friendIds);
+            if (friends) ids.add(friendId);
+            else ids.remove(friendId);
+            return new Audience(Set.copyOf(ids), groupIds, builtAtNanos);
+        }
+    }
+
+    private final UserClient userClient;
+    private final ConversationParticipantRepository participants;
+
+    /** A built audience, or with a null audience the marker a patch leaves for a user with none. */
+    private record Slot(Audience audience, long version) {}
+
+    private final Map<Long, Slot> audiences = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    // Version at the last clear; builds that started before it may have missed a dropped marker.
+    private volatile long clearedAt;
+
+    public Audience get(long userId) {
+        Slot cached = audiences.get(userId);
+        if (cached != null && cached.audience() != null
+                && System.nanoTime() - cached.audience().builtAtNanos() < TTL_NANOS) {
+            return cached.audience();
+        }
+        long stamp = versions.get();
+        Audience built = new Audience(
+                Set.copyOf(userClient.friendIds(userId)),
+                Set.copyOf(participants.findActiveConversationIds(userId, Conversation.Type.MESSAGING_GROUP)),
+                System.nanoTime());
+        trimIfFull();
+        audiences.compute(userId, (id, old) -> (old != null && old.version() > stamp) || stamp < clearedAt
+                ? old
+                : new Slot(built, old == null ? 0 : old.version()));
+        return built;
+    }
+
+    /** Users added to a messaging group. */
+    public void onJoined(long conversationId, Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            patch(userId, a -> a.withGroup(conversationId));
+        }
+    }
+
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        patch(event.userA(), a -> a.withFriend(event.userB(), event.friends()));
+        patch(event.userB(), a -> a.withFriend(event.userA(), event.friends()));
+    }
+
+    /** Applies {@code change} to a built entry, or leaves a marker so a build in flight is not stored. */
+    private void patch(long userId, UnaryOperator<Audience> change) {
+        trimIfFull();
+        long version = versions.incrementAndGet();
+        audiences.compute(userId, (id, old) -> new Slot(
+                old == null || old.audience() == null ? null : change.apply(old.audience()), version));
+    }
+
+    private void trimIfFull() {
+        if (audiences.size() >= MAX_USERS) {
+            clearedAt = versions.incrementAndGet();
+            audiences.clear();
+        }
+    }
+}
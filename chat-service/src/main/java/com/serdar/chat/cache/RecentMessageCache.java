@@ -0,0 +1,248 @@
+package com.serdar.chat.cache;
+
+import com.serdar.proto.chat.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hot tier for the newest messages of recently read conversations.
+ *
+ * Each conversation keeps up to {@link #PER_CONVERSATION} messages as
+ * ready-built protos: seeded from the first history read, then extended by
+ * the send path and patched in place by edits and deletes. Every write, on
+ * any instance, bumps a per-conversation version in Redis
+ * ({@code chat:conv-version:{id}}); a read that finds a different version
+ * than the one the local copy was built at drops it and goes back to
+ * Cassandra. A hit therefore costs one Redis GET and no Cassandra read or
+ * decryption. The cache as a whole is bounded by a byte budget, evicting the
+ * least recently read conversations first.
+ */
+@Component
+public class RecentMessageCache {
+
+    public static final int PER_CONVERSATION = 100;
+
+    private static final String VERSION_KEY = "chat:conv-version:";
+    /** Rough per-entry cost on top of the serialized proto: object headers, list node, boxing. */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /** Newest messages of one conversation, oldest first, with no gaps. */
+    private static final class Ring {
+        final LinkedList<ChatMessage> messages = new LinkedList<>();
+        long version;
+        /** True if nothing older than {@code messages.getFirst()} exists. */
+        boolean complete;
+        long bytes;
+        /** False once dropped from the map; its bytes are then no longer counted. */
+        boolean live = true;
+        volatile long lastReadNanos = System.nanoTime();
+    }
+
+    public record Window(List<ChatMessage> newestFirst, boolean hasMore) {}
+
+    private static final Comparator<ChatMessage> ORDER = Comparator
+            .comparingLong(ChatMessage::getCreatedAtMillis)
+            .thenComparingLong(ChatMessage::getId);
+
+    private final StringRedisTemplate redis;
+    private final long maxBytes;
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    public RecentMessageCache(StringRedisTemplate redis,
+                              @Value("${app.messages.hot-tier-max-bytes}") long maxBytes,
+                              MeterRegistry meters) {
+        this.redis = redis;
+        this.maxBytes = maxBytes;
+        this.hits = meters.counter("chat.messages.hot.hits");
+        this.misses = meters.counter("chat.messages.hot.misses");
+        Gauge.builder("chat.messages.hot.bytes", bytes, AtomicLong::get).register(meters);
+        Gauge.builder("chat.messages.hot.conversations", rings, Map::size).register(meters);
+    }
+
+    /**
+     * The newest {@code size} messages not sent by {@code hiddenSenders},
+     * newest first, or null if the local copy is stale or too short.
+     */
+    public Window latest(long conversationId, Set<Long> hiddenSenders, int size) {
+        Ring ring = rings.get(conversationId);
+        if (ring == null) {
+            misses.increment();
+            return null;
+        }
+        long current = currentVersion(conversationId);
+        List<ChatMessage> picked = new ArrayList<>(size + 1);
+        boolean complete;
+        synchronized (ring) {
+            if (ring.version != current) {
+                drop(conversationId, ring);
+                misses.increment();
+                return null;
+            }
+            Iterator<ChatMessage> newestFirst = ring.messages.descendingIterator();
+            while (newestFirst.hasNext() && picked.size() <= size) {
+                ChatMessage m = newestFirst.next();
+                if (!hiddenSenders.contains(m.getSenderId())) picked.add(m);
+            }
+            complete = ring.complete;
+        }
+        boolean hasMore = picked.size() > size;
+        if (!hasMore && !complete) {
+            misses.increment();
+            return null;
+        }
+        ring.lastReadNanos = System.nanoTime();
+        hits.increment();
+        return new Window(hasMore ? picked.subList(0, size) : picked, hasMore);
+    }
+
+    /** Read before fetching history to seed from, so a write racing the fetch invalidates the seed. */
+    public long currentVersion(long conversationId) {
+        String v = redis.opsForValue().get(VERSION_KEY + conversationId);
+        return v == null ? 0 : Long.parseLong(v);
+    }
+
+    /**
+     * Replaces the local copy with {@code newestFirst}, the unfiltered newest
+     * messages as of {@code version}. {@code complete} says nothing older exists.
+     */
+    public void seed(long conversationId, long version, List<ChatMessage> newestFirst, boolean complete) {
+        Ring ring = new Ring();
+        ring.version = version;
+        int keep = Math.min(newestFirst.size(), PER_CONVERSATION);
+        ring.complete = complete && keep == newestFirst.size();
+        for (int i = keep - 1; i >= 0; i--) {
+            ChatMessage m = newestFirst.get(i);
+            ring.messages.addLast(m);
+            ring.bytes += cost(m);
+        }
+        Ring previous = rings.put(conversationId, ring);
+        if (previous != null) {
+            synchronized (previous) {
+                if (previous.live) {
+                    previous.live = false;
+                    bytes.addAndGet(-previous.bytes);
+                }
+            }
+        }
+        bytes.addAndGet(ring.bytes);
+        enforceBudget();
+    }
+
+    /** A new message was stored. Call after the Cassandra write. */
+    public void append(ChatMessage message) {
+        long conversationId = message.getConversationId();
+        long version = bumpVersion(conversationId);
+        Ring ring = rings.get(conversationId);
+        if (ring == null) return;
+        synchronized (ring) {
+            if (version != ring.version + 1) {
+                drop(conversationId, ring);
+                return;
+            }
+            ring.version = version;
+            ListIterator<ChatMessage> it = ring.messages.listIterator(ring.messages.size());
+            while (it.hasPrevious()) {
+                if (ORDER.compare(it.previous(), message) <= 0) {
+                    it.next();
+                    break;
+                }
+            }
+            it.add(message);
+            adjust(ring, cost(message));
+            while (ring.messages.size() > PER_CONVERSATION) {
+                adjust(ring, -cost(ring.messages.removeFirst()));
+                ring.complete = false;
+            }
+        }
+        enforceBudget();
+    }
+
+    /** A stored message was edited or deleted. Call after the Cassandra write. */
+    public void replace(ChatMessage message) {
+        long conversationId = message.getConversationId();
+        long version = bumpVersion(conversationId);
+        Ring ring = rings.get(conversationId);
+        if (ring == null) return;
+        synchronized (ring) {
+            if (version != ring.version + 1) {
+                drop(conversationId, ring);
+                return;
+            }
+            ring.version = version;
+            ListIterator<ChatMessage> it = ring.messages.listIterator();
+            while (it.hasNext()) {
+                ChatMessage old = it.next();
+                if (old.getId() == message.getId()) {
+                    it.set(message);
+                    adjust(ring, cost(message) - cost(old));
+                    break;
+                }
+            }
+        }
+    }
+
+    /** History changed in bulk (purges); every instance's copy becomes stale. */
+    public void invalidate(long conversationId) {
+        bumpVersion(conversationId);
+        Ring ring = rings.get(conversationId);
+        if (ring != null) {
+            synchronized (ring) {
+                drop(conversationId, ring);
+            }
+        }
+    }
+
+    private long bumpVersion(long conversationId) {
+        Long v = redis.opsForValue().increment(VERSION_KEY + conversationId);
+        return v == null ? -1 : v;
+    }
+
+    /** Caller holds the ring's lock. */
+    private void drop(long conversationId, Ring ring) {
+        rings.remove(conversationId, ring);
+        if (ring.live) {
+            ring.live = false;
+            bytes.addAndGet(-ring.bytes);
+        }
+    }
+
+    /** Caller holds the ring's lock. */
+    private void adjust(Ring ring, long delta) {
+        ring.bytes += delta;
+        if (ring.live) bytes.addAndGet(delta);
+    }
+
+    private void enforceBudget() {
+        if (bytes.get() <= maxBytes) return;
+        List<Map.Entry<Long, Ring>> byAge = new ArrayList<>(rings.entrySet());
+        byAge.sort(Comparator.comparingLong(e -> e.getValue().lastReadNanos));
+        for (Map.Entry<Long, Ring> e : byAge) {
+            if (bytes.get() <= maxBytes) break;
+            synchronized (e.getValue()) {
+                drop(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    private static int cost(ChatMessage m) {
+        return m.getSerializedSize() + ENTRY_OVERHEAD;
+    }
+}
@@ -0,0 +1,181 @@
+package com.serdar.chat.cache;
+
+import com.serdar.chat.messaging.ChatEventRabbitConfig;
+import com.serdar.chat.messaging.RosterInvalidation;
+import com.serdar.chat.repository.ConversationParticipantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of active-member rosters, keyed by conversation id.
+ *
+ * Membership mutators call {@link #invalidateAfterCommit}: inside that
+ * transaction the conversation is read straight from MySQL (so a system
+ * message reaches a member added a moment earlier), and once it commits the
+ * entry is dropped here and, through RabbitMQ, on every other instance.
+ * Users who joined ride along on the same message so each instance's
+ * {@link PresenceAudienceIndex} can add the group to their audience.
+ *
+ * An invalidation leaves a marker with a version from a counter, and a load
+ * is only cached if no invalidation for the conversation arrived after it
+ * started, so a roster read just before a member left cannot be put back
+ * afterwards. Entries also expire after {@link #TTL_NANOS} in case a remote
+ * invalidation was lost.
+ */
+@Slf4j
+@Component
+public class RosterCache {
+
+    private static final int MAX_CONVERSATIONS = 50_000;
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /** A cached roster, or with a null roster the marker an invalidation leaves. */
+    private record Cached(ConversationRoster roster, long version, long loadedAtNanos) {}
+
+    private final ConversationParticipantRepository participants;
+    private final PresenceAudienceIndex audiences;
+    private final RabbitTemplate rabbit;
+    private final boolean rabbitEnabled;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Map<Long, Cached> rosters = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    // Version at the last clear; loads that started before it may have missed a dropped marker.
+    private volatile long clearedAt;
+
+    public RosterCache(
+            ConversationParticipantRepository participants,
+            PresenceAudienceIndex audiences,
+            ObjectProvider<RabbitTemplate> rabbit,
+            @Value("${app.chat-events.rabbit-enabled}") boolean rabbitEnabled
+    ) {
+        this.participants = participants;
+        this.audiences = audiences;
+        this.rabbit = rabbit.getIfAvailable();
+        this.rabbitEnabled = rabbitEnabled;
+    }
+
+    public ConversationRoster get(long conversationId) {
+        Map<Long, Set<Long>> dirty = dirtyInCurrentTransaction(false);
+        if (dirty != null && dirty.containsKey(conversationId)) {
+            return load(conversationId);
+        }
+        Cached cached = rosters.get(conversationId);
+        if (cached != null && cached.roster() != null && System.nanoTime() - cached.loadedAtNanos() < TTL_NANOS) {
+            return cached.roster();
+        }
+        long stamp = versions.get();
+        ConversationRoster loaded = load(conversationId);
+        // Empty means deleted or not created yet; caching it could hide a new conversation.
+        if (!loaded.isEmpty() && stamp >= clearedAt) {
+            trimIfFull();
+            long now = System.nanoTime();
+            rosters.compute(conversationId, (id, old) -> (old != null && old.version() > stamp) || stamp < clearedAt
+                    ? old
+                    : new Cached(loaded, old == null ? 0 : old.version(), now));
+        }
+        return loaded;
+    }
+
+    public void invalidateAfterCommit(long conversationId) {
+        invalidateAfterCommit(conversationId, List.of());
+    }
+
+    /** Same, for a change that added {@code joinedUserIds} to the conversation. */
+    public void invalidateAfterCommit(long conversationId, Collection<Long> joinedUserIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(conversationId, List.copyOf(joinedUserIds));
+            return;
+        }
+        Map<Long, Set<Long>> dirty = dirtyInCurrentTransaction(true);
+        Set<Long> joined = dirty.get(conversationId);
+        if (joined != null) {
+            joined.addAll(joinedUserIds);
+            return;
+        }
+        Set<Long> pending = new LinkedHashSet<>(joinedUserIds);
+        dirty.put(conversationId, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(conversationId, List.copyOf(pending));
+            }
+        });
+    }
+
+    /** Invalidation received from another instance. */
+    public void onRemoteInvalidation(RosterInvalidation message) {
+        if (!instanceId.equals(message.originId())) {
+            forget(message.conversationId());
+            if (message.joinedUserIds() != null) {
+                audiences.onJoined(message.conversationId(), message.joinedUserIds());
+            }
+        }
+    }
+
+    private void invalidate(long conversationId, List<Long> joinedUserIds) {
+        forget(conversationId);
+        audiences.onJoined(conversationId, joinedUserIds);
+        if (!rabbitEnabled || rabbit == null) return;
+        try {
+            rabbit.convertAndSend(ChatEventRabbitConfig.ROSTER_EXCHANGE, "",
+                    new RosterInvalidation(conversationId, instanceId, joinedUserIds));
+        } catch (Exception e) {
+            log.warn("Could not publish roster invalidation for conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    /** Drops the entry, leaving a marker that stops a load already in flight from caching. */
+    private void forget(long conversationId) {
+        trimIfFull();
+        rosters.put(conversationId, new Cached(null, versions.incrementAndGet(), 0));
+    }
+
+    private void trimIfFull() {
+        if (rosters.size() >= MAX_CONVERSATIONS) {
+            clearedAt = versions.incrementAndGet();
+            rosters.clear();
+        }
+    }
+
+    private ConversationRoster load(long conversationId) {
+        return ConversationRoster.of(participants.findByConversationIdAndDeletedAtIsNull(conversationId));
+    }
+
+    /** Conversations whose membership the current transaction changed, with who joined; bound lazily. */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Set<Long>> dirtyInCurrentTransaction(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Long, Set<Long>> dirty = (Map<Long, Set<Long>>) TransactionSynchronizationManager.getResource(this);
+        if (dirty == null && create) {
+            Map<Long, Set<Long>> created = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RosterCache.this);
+                }
+            });
+            return created;
+        }
+        return dirty;
+    }
+}
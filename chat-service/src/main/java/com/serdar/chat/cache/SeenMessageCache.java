@@ -0,0 +1,47 @@
+package com.serdar.chat.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of the "seen" receipt in direct chats: the newest message
+ * from a sender that the other side has read past.
+ *
+ * Each entry remembers the reader's lastReadAt it was computed for and is
+ * only served while that still matches, so a read on another instance can't
+ * leave a stale receipt behind. {@code markRead} and message deletion drop the
+ * conversation's entries on this instance.
+ */
+@Component
+public class SeenMessageCache {
+
+    private static final int MAX_CONVERSATIONS = 10_000;
+
+    private record Seen(LocalDateTime readerLastReadAt, Long messageId) {}
+
+    // conversationId -> senderId -> receipt
+    private final Map<Long, Map<Long, Seen>> byConversation = new ConcurrentHashMap<>();
+
+    public Long get(long conversationId, long senderId, LocalDateTime readerLastReadAt, Supplier<Long> loader) {
+        Map<Long, Seen> senders = byConversation.get(conversationId);
+        Seen cached = senders == null ? null : senders.get(senderId);
+        if (cached != null && cached.readerLastReadAt().equals(readerLastReadAt)) {
+            return cached.messageId();
+        }
+        Long messageId = loader.get();
+        if (byConversation.size() >= MAX_CONVERSATIONS) {
+            byConversation.clear();
+        }
+        byConversation.computeIfAbsent(conversationId, k -> new ConcurrentHashMap<>())
+                .put(senderId, new Seen(readerLastReadAt, messageId));
+        return messageId;
+    }
+
+    public void invalidate(long conversationId) {
+        byConversation.remove(conversationId);
+    }
+}
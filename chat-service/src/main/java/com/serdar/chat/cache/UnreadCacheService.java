@@ -1,90 +1,219 @@
 package com.serdar.chat.cache;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.IntSupplier;
 
+/**
+ * Unread badges, one Redis hash per user: a field per conversation plus a
+ * {@code total} field. A missing field means "not known" and is recomputed
+ * from MySQL by the caller; a field is only ever incremented when it exists,
+ * so a cold cache never turns into a count of 1.
+ */
 @Service
 @RequiredArgsConstructor
 public class UnreadCacheService {
 
     private static final Duration TTL = Duration.ofDays(7);
+    private static final String TOTAL = "total";
+
+    /** Bumps the conversation field and the total where they are known; returns the new count or -1 if unknown. */
+    private static final RedisScript<Long> INCREMENT = new DefaultRedisScript<>("""
+            local conv = -1
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 1 then
+              conv = redis.call('HINCRBY', KEYS[1], ARGV[1], 1)
+            end
+            if redis.call('HEXISTS', KEYS[1], 'total') == 1 then
+              redis.call('HINCRBY', KEYS[1], 'total', 1)
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return conv
+            """, Long.class);
+
+    /**
+     * Takes one message back off the conversation field and the total where
+     * they are known and above zero; a conversation cached at zero has
+     * nothing to give back to the total. Returns {conversation, total}, -1 for
+     * either when it is not cached.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DECREMENT = new DefaultRedisScript<>("""
+            local conv = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or -1)
+            local total = tonumber(redis.call('HGET', KEYS[1], 'total') or -1)
+            if conv ~= 0 then
+              if conv > 0 then
+                conv = redis.call('HINCRBY', KEYS[1], ARGV[1], -1)
+              end
+              if total > 0 then
+                total = redis.call('HINCRBY', KEYS[1], 'total', -1)
+              end
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return {conv, total}
+            """, List.class);
+
+    /**
+     * Zeroes the conversation field and takes its old value (or ARGV[3] when
+     * the field is cold and ARGV[3] is not negative) off the total. Returns
+     * the remaining total, or -1 when it is unknown; an unknown delta drops it.
+     */
+    private static final RedisScript<Long> CLEAR = new DefaultRedisScript<>("""
+            local prev = redis.call('HGET', KEYS[1], ARGV[1])
+            redis.call('HSET', KEYS[1], ARGV[1], 0)
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            local n = tonumber(prev or ARGV[3])
+            if n < 0 then
+              redis.call('HDEL', KEYS[1], 'total')
+              return -1
+            end
+            if redis.call('HEXISTS', KEYS[1], 'total') == 0 then
+              return -1
+            end
+            local total = redis.call('HINCRBY', KEYS[1], 'total', -n)
+            if total < 0 then
+              redis.call('HDEL', KEYS[1], 'total')
+              return -1
+            end
+            return total
+            """, Long.class);
 
     private final StringRedisTemplate redis;
 
-    private String convKey(long userId, long conversationId) {
-        return "chat:unread:" + userId + ":" + conversationId;
+    private String key(long userId) {
+        return "chat:unread:user:" + userId;
     }
 
-    private String totalKey(long userId) {
-        return "chat:unread:total:" + userId;
+    /**
+     * Counts one new message in {@code conversationId} for every user in
+     * {@code userIds}, in a single pipelined round trip. Returns the new
+     * per-conversation count for the users whose count was cached; the rest
+     * need a {@link #getConversationUnread} with a fallback.
+     */
+    public Map<Long, Integer> increment(long conversationId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) return Map.of();
+        List<Long> ids = new ArrayList<>(userIds);
+        String field = String.valueOf(conversationId);
+        String ttl = String.valueOf(TTL.toSeconds());
+        List<Object> results = pipelineScript(INCREMENT, c -> {
+            for (Long id : ids) {
+                c.evalSha(INCREMENT.getSha1(), ReturnType.INTEGER, 1, key(id), field, ttl);
+            }
+        });
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (results.get(i) instanceof Long n && n >= 0) counts.put(ids.get(i), n.intValue());
+        }
+        return counts;
     }
 
-    public void increment(long userId, long conversationId) {
-        redis.opsForValue().increment(convKey(userId, conversationId));
-        redis.opsForValue().increment(totalKey(userId));
-        touchTtl(userId, conversationId);
+    /** Cached badges after a change; -1 where the value is not cached. */
+    public record Counts(int conversation, int total) {}
+
+    /**
+     * Uncounts one deleted message in {@code conversationId} for every user in
+     * {@code userIds}, in a single pipelined round trip. Users with nothing
+     * cached are absent from the result.
+     */
+    public Map<Long, Counts> decrement(long conversationId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) return Map.of();
+        List<Long> ids = new ArrayList<>(userIds);
+        String field = String.valueOf(conversationId);
+        String ttl = String.valueOf(TTL.toSeconds());
+        List<Object> results = pipelineScript(DECREMENT, c -> {
+            for (Long id : ids) {
+                c.evalSha(DECREMENT.getSha1(), ReturnType.MULTI, 1, key(id), field, ttl);
+            }
+        });
+        Map<Long, Counts> counts = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (results.get(i) instanceof List<?> r && r.size() == 2
+                    && r.get(0) instanceof Long conv && r.get(1) instanceof Long total
+                    && (conv >= 0 || total >= 0)) {
+                counts.put(ids.get(i), new Counts(conv.intValue(), total.intValue()));
+            }
+        }
+        return counts;
     }
 
-    public void resetConversation(long userId, long conversationId, int previousUnread) {
-        clearConversation(userId, conversationId);
+    /**
+     * Clears the conversation and returns the user's remaining total, or -1
+     * if the total is not cached. {@code previousUnread} is what the
+     * conversation contributed to the total according to MySQL, used when its
+     * field is cold.
+     */
+    public int resetConversation(long userId, long conversationId, int previousUnread) {
+        Long total = redis.execute(CLEAR, List.of(key(userId)), String.valueOf(conversationId),
+                String.valueOf(TTL.toSeconds()), String.valueOf(Math.max(0, previousUnread)));
+        return total == null ? -1 : total.intValue();
     }
 
     public void clearConversation(long userId, long conversationId) {
-        String key = convKey(userId, conversationId);
-        String prev = redis.opsForValue().get(key);
-        int n = prev == null ? 0 : Math.max(0, Integer.parseInt(prev));
-        redis.delete(key);
-        if (n > 0) {
-            Long total = redis.opsForValue().increment(totalKey(userId), -n);
-            if (total != null && total <= 0) {
-                redis.delete(totalKey(userId));
-            }
-        }
+        redis.execute(CLEAR, List.of(key(userId)),
+                String.valueOf(conversationId), String.valueOf(TTL.toSeconds()), "-1");
+    }
+
+    /** Forgets the cached conversation count and total, e.g. after a mute change moves it in or out of the total. */
+    public void invalidate(long userId, long conversationId) {
+        redis.opsForHash().delete(key(userId), String.valueOf(conversationId), TOTAL);
     }
 
     public void setConversationUnread(long userId, long conversationId, int count) {
-        if (count <= 0) {
-            redis.delete(convKey(userId, conversationId));
-            return;
-        }
-        redis.opsForValue().set(convKey(userId, conversationId), String.valueOf(count));
-        touchTtl(userId, conversationId);
+        put(userId, Map.of(String.valueOf(conversationId), String.valueOf(Math.max(0, count))));
     }
 
     public void setTotalUnread(long userId, int total) {
-        if (total <= 0) {
-            redis.delete(totalKey(userId));
-            return;
-        }
-        redis.opsForValue().set(totalKey(userId), String.valueOf(total));
-        redis.expire(totalKey(userId), TTL);
+        put(userId, Map.of(TOTAL, String.valueOf(Math.max(0, total))));
     }
 
     public int getConversationUnread(long userId, long conversationId, IntSupplier fallback) {
-        String v = redis.opsForValue().get(convKey(userId, conversationId));
+        Object v = redis.opsForHash().get(key(userId), String.valueOf(conversationId));
         if (v != null) {
-            return Math.max(0, Integer.parseInt(v));
+            return Math.max(0, Integer.parseInt(v.toString()));
         }
         int computed = Math.max(0, fallback.getAsInt());
-        if (computed > 0) {
-            redis.opsForValue().set(convKey(userId, conversationId), String.valueOf(computed));
-            touchTtl(userId, conversationId);
-        }
+        setConversationUnread(userId, conversationId, computed);
         return computed;
     }
 
+    /** Every cached per-conversation count for the user, from one HGETALL. Unknown conversations are absent. */
+    public Map<Long, Integer> conversationUnreads(long userId) {
+        Map<Object, Object> all = redis.opsForHash().entries(key(userId));
+        Map<Long, Integer> counts = new HashMap<>();
+        all.forEach((k, v) -> {
+            if (!TOTAL.equals(k)) counts.put(Long.parseLong(k.toString()), Math.max(0, Integer.parseInt(v.toString())));
+        });
+        return counts;
+    }
+
+    /** Stores several per-conversation counts with one HSET. */
+    public void putConversationUnreads(long userId, Map<Long, Integer> counts) {
+        if (counts.isEmpty()) return;
+        Map<String, String> fields = new HashMap<>();
+        counts.forEach((conv, n) -> fields.put(String.valueOf(conv), String.valueOf(Math.max(0, n))));
+        put(userId, fields);
+    }
+
     public int getTotalUnread(long userId, IntSupplier fallback) {
-        String v = redis.opsForValue().get(totalKey(userId));
+        Object v = redis.opsForHash().get(key(userId), TOTAL);
         if (v != null) {
-            return Math.max(0, Integer.parseInt(v));
+            return Math.max(0, Integer.parseInt(v.toString()));
         }
         int computed = Math.max(0, fallback.getAsInt());
-        redis.opsForValue().set(totalKey(userId), String.valueOf(computed));
-        redis.expire(totalKey(userId), TTL);
+        setTotalUnread(userId, computed);
         return computed;
     }
 
@@ -92,8 +221,35 @@ public class UnreadCacheService {
         setTotalUnread(userId, total);
     }
 
-    private void touchTtl(long userId, long conversationId) {
-        redis.expire(convKey(userId, conversationId), TTL);
-        redis.expire(totalKey(userId), TTL);
+    private void put(long userId, Map<String, String> fields) {
+        redis.opsForHash().putAll(key(userId), fields);
+        redis.expire(key(userId), TTL);
+    }
+
+    private interface PipelineBody {
+        void run(StringRedisConnection c);
+    }
+
+    /** Runs EVALSHA calls in a pipeline, loading the script once if Redis does not have it yet. */
+    private List<Object> pipelineScript(RedisScript<?> script, PipelineBody body) {
+        RedisCallback<Object> callback = connection -> {
+            body.run((StringRedisConnection) connection);
+            return null;
+        };
+        try {
+            return redis.executePipelined(callback);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) throw e;
+            redis.execute((RedisCallback<String>) c ->
+                    c.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+            return redis.executePipelined(callback);
+        }
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (String.valueOf(t.getMessage()).contains("NOSCRIPT")) return true;
+        }
+        return false;
     }
 }
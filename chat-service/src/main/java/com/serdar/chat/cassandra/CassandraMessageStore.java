@@ -1,52 +1,135 @@
 package com.serdar.chat.cassandra;
 
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.serdar.chat.model.Message;
+import com.serdar.chat.model.MessageCursor;
 import com.serdar.chat.repository.MessageStore;
+import com.serdar.chat.service.MessageIdGenerator;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 
+/**
+ * Message storage on Cassandra.
+ *
+ * History lives in two layouts while the day-bucketed table is rolled out:
+ * the original {@code messages_by_conversation} (one partition per
+ * conversation) and {@code messages_by_conversation_bucket} (one partition per
+ * conversation and UTC day, see {@link MessageBuckets}). New messages are
+ * always written to the bucketed table and, while {@code legacy-writes} is on,
+ * to the old one too. {@link MessageBucketBackfill} copies older rows across,
+ * after which {@code bucketed-reads} switches every read to the bucketed
+ * layout.
+ *
+ * Ciphertext and IV are stored as raw {@code blob}s. Rows written before that
+ * only have the base64 {@code _b64} text columns, so reads take the blob when
+ * present and decode the text otherwise. While {@code text-ciphertext-writes}
+ * is on, writes fill both so instances that only know the text columns can
+ * still read new messages; once it is off, edits clear the text copy.
+ */
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class CassandraMessageStore implements MessageStore {
 
     /** Cap rows fetched for offset pagination — prevents unbounded memory use. */
     private static final int MAX_PAGE_FETCH = 5_000;
+    /** Bound on the "bucket already indexed" memo; cleared wholesale when exceeded. */
+    private static final int MAX_INDEXED_BUCKET_MEMO = 10_000;
+    /** How far after its id's timestamp a pre-bucketing row's created_at can be. */
+    private static final Duration LEGACY_CREATED_AT_SLACK = Duration.ofSeconds(1);
+    /** Outstanding async statements per bulk delete. */
+    private static final int MAX_IN_FLIGHT = 32;
+    /** Statements per purge batch; progress is reported between batches. */
+    private static final int PURGE_BATCH = 500;
+    private static final Base64.Encoder BASE64 = Base64.getEncoder();
 
     private final CqlSession session;
-    private final CassandraMessageRepository messages;
-    private final CassandraMessageBySenderRepository bySender;
 
     @Value("${spring.cassandra.keyspace-name}")
     private String keyspace;
 
+    @Value("${app.messages.bucketed-reads}")
+    private boolean bucketedReads;
+
+    @Value("${app.messages.legacy-writes}")
+    private boolean legacyWrites;
+
+    @Value("${app.messages.sender-keys-migrating}")
+    private boolean senderKeysMigrating;
+
+    @Value("${app.messages.text-ciphertext-writes}")
+    private boolean textCiphertextWrites;
+
+    private final Map<Long, Integer> lastIndexedBucket = new ConcurrentHashMap<>();
+
     private volatile boolean initialized;
-    private PreparedStatement selectConversationAll;
     private PreparedStatement selectConversationLimited;
     private PreparedStatement selectConversationSince;
+    private PreparedStatement selectConversationBefore;
     private PreparedStatement selectOne;
+    private PreparedStatement selectNear;
     private PreparedStatement countConversation;
-    private PreparedStatement deleteConversation;
-    private PreparedStatement deleteBySender;
+    private PreparedStatement deleteConversationPartition;
+    private PreparedStatement selectLegacySenderKeys;
+    private PreparedStatement selectLegacySenderKeysUpTo;
+    private PreparedStatement deleteLegacySenderKey;
+    private PreparedStatement deleteLegacySenderPartition;
     private PreparedStatement updateConversation;
-    private PreparedStatement updateBySender;
     private PreparedStatement softDeleteConversation;
 
-    private void ensureInitialized() {
+    private PreparedStatement insertConversation;
+    private PreparedStatement insertSenderKey;
+    private PreparedStatement selectSenderKeys;
+    private PreparedStatement selectSenderKeysUpTo;
+    private PreparedStatement deleteSenderKey;
+    private PreparedStatement deleteSenderPartition;
+    private PreparedStatement insertBucketed;
+    private PreparedStatement indexBucket;
+    private PreparedStatement selectBuckets;
+    private PreparedStatement selectBucketsUpTo;
+    private PreparedStatement selectBucketsFrom;
+    private PreparedStatement selectBucketLimited;
+    private PreparedStatement selectBucketSince;
+    private PreparedStatement selectBucketBefore;
+    private PreparedStatement selectBucketOne;
+    private PreparedStatement selectBucketNear;
+    private PreparedStatement countBucket;
+    private PreparedStatement deleteBucketPartition;
+    private PreparedStatement deleteBucketIndex;
+    private PreparedStatement updateBucketed;
+    private PreparedStatement softDeleteBucketed;
+
+    void ensureInitialized() {
         if (initialized) {
             return;
         }
@@ -54,6 +137,10 @@ public class CassandraMessageStore implements MessageStore {
             if (initialized) {
                 return;
             }
+            if (!legacyWrites && !bucketedReads) {
+                throw new IllegalStateException(
+                        "app.messages.legacy-writes=false requires app.messages.bucketed-reads=true");
+            }
             session.execute(
                     "CREATE KEYSPACE IF NOT EXISTS " + keyspace
                             + " WITH replication = {'class': 'SimpleStrategy', 'replication_factor': 1}");
@@ -64,6 +151,8 @@ public class CassandraMessageStore implements MessageStore {
                         created_at timestamp,
                         message_id bigint,
                         sender_id bigint,
+                        content_cipher blob,
+                        content_iv blob,
                         content_cipher_b64 text,
                         content_iv_b64 text,
                         edited_at timestamp,
@@ -82,6 +171,38 @@ public class CassandraMessageStore implements MessageStore {
                         PRIMARY KEY ((conversation_id, sender_id), created_at, message_id)
                     ) WITH CLUSTERING ORDER BY (created_at DESC, message_id DESC)
                     """);
+            session.execute("""
+                    CREATE TABLE IF NOT EXISTS message_keys_by_sender (
+                        conversation_id bigint,
+                        sender_id bigint,
+                        created_at timestamp,
+                        message_id bigint,
+                        PRIMARY KEY ((conversation_id, sender_id), created_at, message_id)
+                    ) WITH CLUSTERING ORDER BY (created_at DESC, message_id DESC)
+                    """);
+            session.execute("""
+                    CREATE TABLE IF NOT EXISTS messages_by_conversation_bucket (
+                        conversation_id bigint,
+                        bucket int,
+                        created_at timestamp,
+                        message_id bigint,
+                        sender_id bigint,
+                        content_cipher blob,
+                        content_iv blob,
+                        content_cipher_b64 text,
+                        content_iv_b64 text,
+                        edited_at timestamp,
+                        deleted boolean,
+                        PRIMARY KEY ((conversation_id, bucket), created_at, message_id)
+                    ) WITH CLUSTERING ORDER BY (created_at DESC, message_id DESC)
+                    """);
+            session.execute("""
+                    CREATE TABLE IF NOT EXISTS message_buckets_by_conversation (
+                        conversation_id bigint,
+                        bucket int,
+                        PRIMARY KEY (conversation_id, bucket)
+                    ) WITH CLUSTERING ORDER BY (bucket DESC)
+                    """);
             try {
                 session.execute("ALTER TABLE messages_by_conversation ADD edited_at timestamp");
             } catch (Exception ignored) {
@@ -92,78 +213,173 @@ public class CassandraMessageStore implements MessageStore {
             } catch (Exception ignored) {
                 // column already exists
             }
-            String cols = "conversation_id, created_at, message_id, sender_id, content_cipher_b64, content_iv_b64, edited_at, deleted";
-            selectConversationAll = session.prepare(
-                    "SELECT " + cols + " FROM messages_by_conversation WHERE conversation_id = ?");
+            for (String table : List.of("messages_by_conversation", "messages_by_conversation_bucket")) {
+                try {
+                    session.execute("ALTER TABLE " + table + " ADD (content_cipher blob, content_iv blob)");
+                } catch (Exception ignored) {
+                    // columns already exist
+                }
+            }
+            String cols = "conversation_id, created_at, message_id, sender_id, content_cipher, content_iv,"
+                    + " content_cipher_b64, content_iv_b64, edited_at, deleted";
             selectConversationLimited = session.prepare(
                     "SELECT " + cols + " FROM messages_by_conversation WHERE conversation_id = ? LIMIT ?");
             selectConversationSince = session.prepare(
                     "SELECT " + cols + " FROM messages_by_conversation WHERE conversation_id = ? AND created_at > ?");
+            selectConversationBefore = session.prepare(
+                    "SELECT " + cols + " FROM messages_by_conversation"
+                            + " WHERE conversation_id = ? AND (created_at, message_id) < (?, ?) LIMIT ?");
             selectOne = session.prepare(
                     "SELECT " + cols + " FROM messages_by_conversation"
                             + " WHERE conversation_id = ? AND created_at = ? AND message_id = ?");
+            selectNear = session.prepare(
+                    "SELECT " + cols + " FROM messages_by_conversation"
+                            + " WHERE conversation_id = ? AND created_at >= ? AND created_at <= ?");
             countConversation = session.prepare(
                     "SELECT COUNT(*) FROM messages_by_conversation WHERE conversation_id = ?");
-            deleteConversation = session.prepare(
-                    "DELETE FROM messages_by_conversation WHERE conversation_id = ? AND created_at = ? AND message_id = ?");
-            deleteBySender = session.prepare(
+            deleteConversationPartition = session.prepare(
+                    "DELETE FROM messages_by_conversation WHERE conversation_id = ?");
+            selectLegacySenderKeys = session.prepare(
+                    "SELECT created_at, message_id FROM messages_by_sender WHERE conversation_id = ? AND sender_id = ?");
+            selectLegacySenderKeysUpTo = session.prepare(
+                    "SELECT created_at, message_id FROM messages_by_sender"
+                            + " WHERE conversation_id = ? AND sender_id = ? AND created_at <= ? LIMIT ?");
+            deleteLegacySenderKey = session.prepare(
                     "DELETE FROM messages_by_sender WHERE conversation_id = ? AND sender_id = ? AND created_at = ? AND message_id = ?");
+            deleteLegacySenderPartition = session.prepare(
+                    "DELETE FROM messages_by_sender WHERE conversation_id = ? AND sender_id = ?");
             updateConversation = session.prepare(
-                    "UPDATE messages_by_conversation SET content_cipher_b64 = ?, content_iv_b64 = ?, edited_at = ?"
+                    "UPDATE messages_by_conversation SET content_cipher = ?, content_iv = ?,"
+                            + " content_cipher_b64 = ?, content_iv_b64 = ?, edited_at = ?"
                             + " WHERE conversation_id = ? AND created_at = ? AND message_id = ?");
-            updateBySender = session.prepare(
-                    "UPDATE messages_by_sender SET content_cipher_b64 = ?, content_iv_b64 = ?"
-                            + " WHERE conversation_id = ? AND sender_id = ? AND created_at = ? AND message_id = ?");
             softDeleteConversation = session.prepare(
-                    "UPDATE messages_by_conversation SET deleted = true, content_cipher_b64 = null, content_iv_b64 = null"
+                    "UPDATE messages_by_conversation SET deleted = true, content_cipher = null, content_iv = null,"
+                            + " content_cipher_b64 = null, content_iv_b64 = null"
                             + " WHERE conversation_id = ? AND created_at = ? AND message_id = ?");
+
+            insertConversation = session.prepare(
+                    "INSERT INTO messages_by_conversation (conversation_id, created_at, message_id, sender_id,"
+                            + " content_cipher, content_iv, content_cipher_b64, content_iv_b64)"
+                            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            insertSenderKey = session.prepare(
+                    "INSERT INTO message_keys_by_sender (conversation_id, sender_id, created_at, message_id)"
+                            + " VALUES (?, ?, ?, ?)");
+            selectSenderKeys = session.prepare(
+                    "SELECT created_at, message_id FROM message_keys_by_sender WHERE conversation_id = ? AND sender_id = ?");
+            selectSenderKeysUpTo = session.prepare(
+                    "SELECT created_at, message_id FROM message_keys_by_sender"
+                            + " WHERE conversation_id = ? AND sender_id = ? AND created_at <= ? LIMIT ?");
+            deleteSenderKey = session.prepare(
+                    "DELETE FROM message_keys_by_sender WHERE conversation_id = ? AND sender_id = ? AND created_at = ? AND message_id = ?");
+            deleteSenderPartition = session.prepare(
+                    "DELETE FROM message_keys_by_sender WHERE conversation_id = ? AND sender_id = ?");
+            insertBucketed = session.prepare(
+                    "INSERT INTO messages_by_conversation_bucket (conversation_id, bucket, created_at, message_id,"
+                            + " sender_id, content_cipher, content_iv, content_cipher_b64, content_iv_b64)"
+                            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            indexBucket = session.prepare(
+                    "INSERT INTO message_buckets_by_conversation (conversation_id, bucket) VALUES (?, ?)");
+            selectBuckets = session.prepare(
+                    "SELECT bucket FROM message_buckets_by_conversation WHERE conversation_id = ?");
+            selectBucketsUpTo = session.prepare(
+                    "SELECT bucket FROM message_buckets_by_conversation WHERE conversation_id = ? AND bucket <= ?");
+            selectBucketsFrom = session.prepare(
+                    "SELECT bucket FROM message_buckets_by_conversation WHERE conversation_id = ? AND bucket >= ?");
+            selectBucketLimited = session.prepare(
+                    "SELECT " + cols + " FROM messages_by_conversation_bucket"
+                            + " WHERE conversation_id = ? AND bucket = ? LIMIT ?");
+            selectBucketSince = session.prepare(
+                    "SELECT " + cols + " FROM messages_by_conversation_bucket"
+                            + " WHERE conversation_id = ? AND bucket = ? AND created_at > ?");
+            selectBucketBefore = session.prepare(
+                    "SELECT " + cols + " FROM messages_by_conversation_bucket"
+                            + " WHERE conversation_id = ? AND bucket = ? AND (created_at, message_id) < (?, ?) LIMIT ?");
+            selectBucketOne = session.prepare(
+                    "SELECT " + cols + " FROM messages_by_conversation_bucket"
+                            + " WHERE conversation_id = ? AND bucket = ? AND created_at = ? AND message_id = ?");
+            selectBucketNear = session.prepare(
+                    "SELECT " + cols + " FROM messages_by_conversation_bucket"
+                            + " WHERE conversation_id = ? AND bucket = ? AND created_at >= ? AND created_at <= ?");
+            countBucket = session.prepare(
+                    "SELECT COUNT(*) FROM messages_by_conversation_bucket WHERE conversation_id = ? AND bucket = ?");
+            deleteBucketPartition = session.prepare(
+                    "DELETE FROM messages_by_conversation_bucket WHERE conversation_id = ? AND bucket = ?");
+            deleteBucketIndex = session.prepare(
+                    "DELETE FROM message_buckets_by_conversation WHERE conversation_id = ?");
+            updateBucketed = session.prepare(
+                    "UPDATE messages_by_conversation_bucket SET content_cipher = ?, content_iv = ?,"
+                            + " content_cipher_b64 = ?, content_iv_b64 = ?, edited_at = ?"
+                            + " WHERE conversation_id = ? AND bucket = ? AND created_at = ? AND message_id = ?");
+            softDeleteBucketed = session.prepare(
+                    "UPDATE messages_by_conversation_bucket SET deleted = true, content_cipher = null, content_iv = null,"
+                            + " content_cipher_b64 = null, content_iv_b64 = null"
+                            + " WHERE conversation_id = ? AND bucket = ? AND created_at = ? AND message_id = ?");
             initialized = true;
         }
     }
 
+    /**
+     * All inserts go out at once with {@code executeAsync}. The returned stage
+     * completes when the layout that reads are served from (row plus bucket
+     * index) has acknowledged; the sender key and the non-serving layout
+     * finish in the background and only log if they fail.
+     */
     @Override
-    public Message save(Message m) {
+    public CompletionStage<Message> save(Message m) {
         ensureInitialized();
+        long conversationId = m.getConversationId();
         Instant created = m.getCreatedAt().toInstant(ZoneOffset.UTC);
-        CassandraMessage row = new CassandraMessage();
-        CassandraMessage.Key key = new CassandraMessage.Key();
-        key.setConversationId(m.getConversationId());
-        key.setCreatedAt(created);
-        key.setMessageId(m.getId());
-        row.setKey(key);
-        row.setSenderId(m.getSenderId());
-        row.setContentCipherB64(m.getContentCipherB64());
-        row.setContentIvB64(m.getContentIvB64());
-        messages.save(row);
+        int bucket = MessageBuckets.ofMessageId(m.getId());
 
+        CompletionStage<?> bucketed = session.executeAsync(insertBucketed.bind(withContent(m,
+                        conversationId, bucket, created, m.getId(), m.getSenderId())))
+                .thenCombine(indexBucketAsync(conversationId, bucket), (a, b) -> a);
+        CompletionStage<?> legacy = legacyWrites
+                ? session.executeAsync(insertConversation.bind(withContent(m,
+                        conversationId, created, m.getId(), m.getSenderId())))
+                : null;
         if (m.getSenderId() != null && m.getSenderId() > 0) {
-            CassandraMessageBySender senderRow = new CassandraMessageBySender();
-            CassandraMessageBySender.Key sKey = new CassandraMessageBySender.Key();
-            sKey.setConversationId(m.getConversationId());
-            sKey.setSenderId(m.getSenderId());
-            sKey.setCreatedAt(created);
-            sKey.setMessageId(m.getId());
-            senderRow.setKey(sKey);
-            senderRow.setContentCipherB64(m.getContentCipherB64());
-            senderRow.setContentIvB64(m.getContentIvB64());
-            bySender.save(senderRow);
-        }
-        return m;
+            logFailure(session.executeAsync(insertSenderKey.bind(
+                    conversationId, m.getSenderId(), created, m.getId())), "message_keys_by_sender", m);
+        }
+
+        CompletionStage<?> primary;
+        if (bucketedReads) {
+            primary = bucketed;
+            if (legacy != null) logFailure(legacy, "messages_by_conversation", m);
+        } else {
+            primary = legacy;
+            logFailure(bucketed, "messages_by_conversation_bucket", m);
+        }
+        return primary.thenApply(ignored -> m);
     }
 
     @Override
     public Optional<Message> findMessage(long conversationId, long messageId, long createdAtMillis) {
         ensureInitialized();
-        Optional<Message> byId = loadAll(conversationId).stream()
-                .filter(m -> m.getId() != null && m.getId() == messageId)
-                .findFirst();
-        if (byId.isPresent()) {
-            return byId;
-        }
+        long idMillis = MessageIdGenerator.timestampMillis(messageId);
         if (createdAtMillis > 0) {
-            Instant created = Instant.ofEpochMilli(createdAtMillis);
-            Row row = session.execute(selectOne.bind(conversationId, created, messageId)).one();
-            if (row != null) {
+            Optional<Message> exact = pointLookup(conversationId, messageId, Instant.ofEpochMilli(createdAtMillis));
+            if (exact.isPresent()) {
+                return exact;
+            }
+        }
+        if (createdAtMillis != idMillis) {
+            Optional<Message> derived = pointLookup(conversationId, messageId, Instant.ofEpochMilli(idMillis));
+            if (derived.isPresent()) {
+                return derived;
+            }
+        }
+        // Older rows took created_at from a separate clock read just after the
+        // id was minted, so they sit in a narrow window after the id's timestamp.
+        Instant from = Instant.ofEpochMilli(idMillis);
+        Instant to = from.plus(LEGACY_CREATED_AT_SLACK);
+        Iterable<Row> rows = bucketedReads
+                ? session.execute(selectBucketNear.bind(
+                        conversationId, MessageBuckets.ofMessageId(messageId), from, to))
+                : session.execute(selectNear.bind(conversationId, from, to));
+        for (Row row : rows) {
+            if (row.getLong("message_id") == messageId) {
                 return Optional.of(fromRow(row));
             }
         }
@@ -171,54 +387,94 @@ public class CassandraMessageStore implements MessageStore {
     }
 
     @Override
-    public void deleteMessage(long conversationId, long messageId, long createdAtMillis) {
+    public void deleteMessage(Message m) {
         ensureInitialized();
-        Message m = findMessage(conversationId, messageId, createdAtMillis)
-                .orElseThrow(() -> new IllegalArgumentException("Message not found"));
         Instant created = m.getCreatedAt().toInstant(ZoneOffset.UTC);
-        session.execute(softDeleteConversation.bind(conversationId, created, messageId));
+        softDelete(m.getConversationId(), created, m.getId());
         if (m.getSenderId() != null && m.getSenderId() > 0) {
-            session.execute(deleteBySender.bind(conversationId, m.getSenderId(), created, messageId));
+            deleteSenderKey(m.getConversationId(), m.getSenderId(), new SenderKey(created, m.getId()));
         }
     }
 
     @Override
-    public void editMessage(long conversationId, long messageId, long createdAtMillis,
-                            String contentCipherB64, String contentIvB64, LocalDateTime editedAt) {
+    public void editMessage(Message m, byte[] contentCipher, byte[] contentIv, LocalDateTime editedAt) {
         ensureInitialized();
-        Message m = findMessage(conversationId, messageId, createdAtMillis)
-                .orElseThrow(() -> new IllegalArgumentException("Message not found"));
+        long conversationId = m.getConversationId();
+        long messageId = m.getId();
         Instant created = m.getCreatedAt().toInstant(ZoneOffset.UTC);
         Instant edited = editedAt.toInstant(ZoneOffset.UTC);
-        session.execute(updateConversation.bind(
-                contentCipherB64, contentIvB64, edited, conversationId, created, messageId));
-        if (m.getSenderId() != null && m.getSenderId() > 0) {
-            session.execute(updateBySender.bind(
-                    contentCipherB64, contentIvB64, conversationId, m.getSenderId(), created, messageId));
+        ByteBuffer cipher = ByteBuffer.wrap(contentCipher);
+        ByteBuffer iv = ByteBuffer.wrap(contentIv);
+        // With text writes off the text columns are bound to null, dropping any pre-blob copy.
+        String cipherB64 = textCiphertextWrites ? BASE64.encodeToString(contentCipher) : null;
+        String ivB64 = textCiphertextWrites ? BASE64.encodeToString(contentIv) : null;
+        session.execute(updateBucketed.bind(
+                cipher, iv, cipherB64, ivB64, edited,
+                conversationId, MessageBuckets.ofMessageId(messageId), created, messageId));
+        if (legacyWrites) {
+            session.execute(updateConversation.bind(
+                    cipher, iv, cipherB64, ivB64, edited, conversationId, created, messageId));
         }
     }
 
+    /**
+     * Partition deletes only: one per day bucket and one per sender key
+     * partition, issued concurrently. No message row is read or touched.
+     */
     @Override
-    public void deleteByConversationId(long conversationId) {
+    public int deleteByConversationId(long conversationId, Collection<Long> senderIds, IntConsumer progress) {
         ensureInitialized();
-        for (Message m : loadAll(conversationId)) {
-            Instant created = m.getCreatedAt().toInstant(ZoneOffset.UTC);
-            session.execute(deleteConversation.bind(conversationId, created, m.getId()));
-            if (m.getSenderId() != null && m.getSenderId() > 0) {
-                session.execute(deleteBySender.bind(conversationId, m.getSenderId(), created, m.getId()));
+        List<BoundStatement> deletes = new ArrayList<>();
+        for (long senderId : senderIds) {
+            if (senderId > 0) {
+                deletes.add(deleteSenderPartition.bind(conversationId, senderId));
+                if (senderKeysMigrating) {
+                    deletes.add(deleteLegacySenderPartition.bind(conversationId, senderId));
+                }
             }
         }
+        for (int bucket : bucketsDesc(conversationId)) {
+            deletes.add(deleteBucketPartition.bind(conversationId, bucket));
+        }
+        deletes.add(deleteConversationPartition.bind(conversationId));
+        int issued = 0;
+        for (int from = 0; from < deletes.size(); from += PURGE_BATCH) {
+            issued += executeBounded(deletes.subList(from, Math.min(from + PURGE_BATCH, deletes.size())));
+            progress.accept(issued);
+        }
+        // Index goes last so a failed run can be retried and still find the buckets.
+        session.execute(deleteBucketIndex.bind(conversationId));
+        lastIndexedBucket.remove(conversationId);
+        return issued + 1;
     }
 
+    /**
+     * Message rows are clustered by time, not sender, so each one gets its own
+     * soft delete; those run with bounded concurrency. The sender's key
+     * partition is then dropped in one statement.
+     */
     @Override
-    public void deleteBySenderInConversation(long conversationId, long senderId) {
+    public int deleteBySenderInConversation(long conversationId, long senderId, IntConsumer progress) {
         ensureInitialized();
-        for (CassandraMessageBySender row : bySender.findByKeyConversationIdAndKeySenderId(conversationId, senderId)) {
-            Instant created = row.getKey().getCreatedAt();
-            Long messageId = row.getKey().getMessageId();
-            session.execute(softDeleteConversation.bind(conversationId, created, messageId));
-            session.execute(deleteBySender.bind(conversationId, senderId, created, messageId));
+        List<SenderKey> keys = senderKeys(conversationId, senderId);
+        for (int from = 0; from < keys.size(); from += PURGE_BATCH) {
+            int to = Math.min(from + PURGE_BATCH, keys.size());
+            List<BoundStatement> deletes = new ArrayList<>((to - from) * 2);
+            for (SenderKey key : keys.subList(from, to)) {
+                deletes.add(softDeleteBucketed.bind(
+                        conversationId, MessageBuckets.ofMessageId(key.messageId()), key.createdAt(), key.messageId()));
+                if (legacyWrites) {
+                    deletes.add(softDeleteConversation.bind(conversationId, key.createdAt(), key.messageId()));
+                }
+            }
+            executeBounded(deletes);
+            progress.accept(to);
         }
+        session.execute(deleteSenderPartition.bind(conversationId, senderId));
+        if (senderKeysMigrating) {
+            session.execute(deleteLegacySenderPartition.bind(conversationId, senderId));
+        }
+        return keys.size();
     }
 
     @Override
@@ -234,7 +490,7 @@ public class CassandraMessageStore implements MessageStore {
             return new PageImpl<>(List.of(), pageable, total);
         }
         int fetchLimit = Math.min(offset + size, MAX_PAGE_FETCH);
-        List<Message> fetched = loadLimited(conversationId, fetchLimit);
+        List<Message> fetched = loadBefore(conversationId, null, fetchLimit);
         int from = Math.min(offset, fetched.size());
         int to = Math.min(from + size, fetched.size());
         if (from >= to) {
@@ -243,11 +499,28 @@ public class CassandraMessageStore implements MessageStore {
         return new PageImpl<>(fetched.subList(from, to), pageable, total);
     }
 
+    @Override
+    public List<Message> findPageBefore(long conversationId, MessageCursor before, int limit) {
+        ensureInitialized();
+        if (limit <= 0) {
+            return List.of();
+        }
+        return loadBefore(conversationId, before, limit);
+    }
+
     @Override
     public long countByConversationId(long conversationId) {
         ensureInitialized();
-        Row row = session.execute(countConversation.bind(conversationId)).one();
-        return row == null ? 0L : row.getLong(0);
+        if (!bucketedReads) {
+            Row row = session.execute(countConversation.bind(conversationId)).one();
+            return row == null ? 0L : row.getLong(0);
+        }
+        long total = 0;
+        for (int bucket : bucketsDesc(conversationId)) {
+            Row row = session.execute(countBucket.bind(conversationId, bucket)).one();
+            total += row == null ? 0L : row.getLong(0);
+        }
+        return total;
     }
 
     @Override
@@ -272,16 +545,68 @@ public class CassandraMessageStore implements MessageStore {
     public List<Message> lastFromSenderBefore(long conversationId, long senderId, LocalDateTime cutoff, Pageable pageable) {
         ensureInitialized();
         Instant bound = cutoff.toInstant(ZoneOffset.UTC);
-        List<CassandraMessageBySender> rows =
-                bySender.findByKeyConversationIdAndKeySenderId(conversationId, senderId);
-        return rows.stream()
-                .map(this::fromSenderRow)
-                .filter(m -> !m.getCreatedAt().toInstant(ZoneOffset.UTC).isAfter(bound))
-                .sorted(Comparator.comparing(Message::getCreatedAt).reversed())
-                .limit(pageable.getPageSize())
+        int limit = pageable.getPageSize();
+        Set<SenderKey> keys = new LinkedHashSet<>();
+        for (Row row : session.execute(selectSenderKeysUpTo.bind(conversationId, senderId, bound, limit))) {
+            keys.add(new SenderKey(row.getInstant("created_at"), row.getLong("message_id")));
+        }
+        if (senderKeysMigrating) {
+            for (Row row : session.execute(selectLegacySenderKeysUpTo.bind(conversationId, senderId, bound, limit))) {
+                keys.add(new SenderKey(row.getInstant("created_at"), row.getLong("message_id")));
+            }
+        }
+        return keys.stream()
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .map(k -> Message.builder()
+                        .id(k.messageId())
+                        .conversationId(conversationId)
+                        .senderId(senderId)
+                        .createdAt(LocalDateTime.ofInstant(k.createdAt(), ZoneOffset.UTC))
+                        .build())
                 .toList();
     }
 
+    /**
+     * Newest-first keys of a sender's messages. While {@code sender-keys-migrating}
+     * is on, keys only present in the old {@code messages_by_sender} table are
+     * merged in.
+     */
+    private List<SenderKey> senderKeys(long conversationId, long senderId) {
+        Set<SenderKey> keys = new LinkedHashSet<>();
+        for (Row row : session.execute(selectSenderKeys.bind(conversationId, senderId))) {
+            keys.add(new SenderKey(row.getInstant("created_at"), row.getLong("message_id")));
+        }
+        if (senderKeysMigrating) {
+            for (Row row : session.execute(selectLegacySenderKeys.bind(conversationId, senderId))) {
+                keys.add(new SenderKey(row.getInstant("created_at"), row.getLong("message_id")));
+            }
+        }
+        List<SenderKey> sorted = new ArrayList<>(keys);
+        sorted.sort(NEWEST_FIRST);
+        return sorted;
+    }
+
+    private void deleteSenderKey(long conversationId, long senderId, SenderKey key) {
+        session.execute(deleteSenderKey.bind(conversationId, senderId, key.createdAt(), key.messageId()));
+        if (senderKeysMigrating) {
+            session.execute(deleteLegacySenderKey.bind(conversationId, senderId, key.createdAt(), key.messageId()));
+        }
+    }
+
+    private record SenderKey(Instant createdAt, long messageId) {}
+
+    private static final Comparator<SenderKey> NEWEST_FIRST =
+            Comparator.comparing(SenderKey::createdAt).thenComparingLong(SenderKey::messageId).reversed();
+
+    private Optional<Message> pointLookup(long conversationId, long messageId, Instant created) {
+        Row row = bucketedReads
+                ? session.execute(selectBucketOne.bind(
+                        conversationId, MessageBuckets.ofMessageId(messageId), created, messageId)).one()
+                : session.execute(selectOne.bind(conversationId, created, messageId)).one();
+        return row == null ? Optional.empty() : Optional.of(fromRow(row));
+    }
+
     private static boolean countsAsUnread(Message m, long meId) {
         if (m.isDeleted()) {
             return false;
@@ -290,30 +615,147 @@ public class CassandraMessageStore implements MessageStore {
         return senderId != null && senderId > 0 && senderId != meId;
     }
 
-    private List<Message> loadAll(long conversationId) {
-        List<Message> out = new ArrayList<>();
-        for (Row row : session.execute(selectConversationAll.bind(conversationId))) {
-            out.add(fromRow(row));
+    private void softDelete(long conversationId, Instant created, long messageId) {
+        session.execute(softDeleteBucketed.bind(
+                conversationId, MessageBuckets.ofMessageId(messageId), created, messageId));
+        if (legacyWrites) {
+            session.execute(softDeleteConversation.bind(conversationId, created, messageId));
+        }
+    }
+
+    /** Skip the index write when this instance already recorded the bucket. */
+    private CompletionStage<?> indexBucketAsync(long conversationId, int bucket) {
+        Integer known = lastIndexedBucket.get(conversationId);
+        if (known != null && known == bucket) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return session.executeAsync(indexBucket.bind(conversationId, bucket)).thenAccept(rs -> {
+            if (lastIndexedBucket.size() >= MAX_INDEXED_BUCKET_MEMO) {
+                lastIndexedBucket.clear();
+            }
+            lastIndexedBucket.put(conversationId, bucket);
+        });
+    }
+
+    /**
+     * Runs statements with at most {@link #MAX_IN_FLIGHT} outstanding and waits
+     * for all of them. The first failure stops new submissions and is rethrown.
+     */
+    private int executeBounded(List<BoundStatement> statements) {
+        Semaphore permits = new Semaphore(MAX_IN_FLIGHT);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int issued = 0;
+        for (BoundStatement statement : statements) {
+            permits.acquireUninterruptibly();
+            if (failure.get() != null) {
+                permits.release();
+                break;
+            }
+            session.executeAsync(statement).whenComplete((rs, error) -> {
+                if (error != null) {
+                    failure.compareAndSet(null, error);
+                }
+                permits.release();
+            });
+            issued++;
+        }
+        permits.acquireUninterruptibly(MAX_IN_FLIGHT);
+        if (failure.get() != null) {
+            throw new IllegalStateException("Bulk delete failed after " + issued + " statements", failure.get());
+        }
+        return issued;
+    }
+
+    private static void logFailure(CompletionStage<?> write, String table, Message m) {
+        write.whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("Write to {} failed for message {} in conversation {}: {}",
+                        table, m.getId(), m.getConversationId(), error.toString());
+            }
+        });
+    }
+
+    private List<Integer> bucketsDesc(long conversationId) {
+        return bucketIds(session.execute(selectBuckets.bind(conversationId)));
+    }
+
+    private static List<Integer> bucketIds(Iterable<Row> rows) {
+        List<Integer> out = new ArrayList<>();
+        for (Row row : rows) {
+            out.add(row.getInt("bucket"));
         }
         return out;
     }
 
-    private List<Message> loadLimited(long conversationId, int limit) {
-        List<Message> out = new ArrayList<>();
-        for (Row row : session.execute(selectConversationLimited.bind(conversationId, limit))) {
-            out.add(fromRow(row));
+    /** Newest-first rows strictly older than {@code before}, walking day buckets as needed. */
+    private List<Message> loadBefore(long conversationId, MessageCursor before, int limit) {
+        List<Message> out = new ArrayList<>(Math.min(limit, 1_000));
+        if (!bucketedReads) {
+            Iterable<Row> rows = before == null
+                    ? session.execute(selectConversationLimited.bind(conversationId, limit))
+                    : session.execute(selectConversationBefore.bind(conversationId,
+                            Instant.ofEpochMilli(before.createdAtMillis()), before.messageId(), limit));
+            for (Row row : rows) {
+                out.add(fromRow(row));
+            }
+            return out;
+        }
+        List<Integer> buckets = before == null
+                ? bucketsDesc(conversationId)
+                : bucketIds(session.execute(selectBucketsUpTo.bind(
+                        conversationId, MessageBuckets.ofMessageId(before.messageId()))));
+        for (int bucket : buckets) {
+            int remaining = limit - out.size();
+            Iterable<Row> rows = before == null
+                    ? session.execute(selectBucketLimited.bind(conversationId, bucket, remaining))
+                    : session.execute(selectBucketBefore.bind(conversationId, bucket,
+                            Instant.ofEpochMilli(before.createdAtMillis()), before.messageId(), remaining));
+            for (Row row : rows) {
+                out.add(fromRow(row));
+            }
+            if (out.size() >= limit) {
+                break;
+            }
         }
         return out;
     }
 
     private List<Message> loadSince(long conversationId, Instant cutoff) {
         List<Message> out = new ArrayList<>();
-        for (Row row : session.execute(selectConversationSince.bind(conversationId, cutoff))) {
-            out.add(fromRow(row));
+        if (!bucketedReads) {
+            for (Row row : session.execute(selectConversationSince.bind(conversationId, cutoff))) {
+                out.add(fromRow(row));
+            }
+            return out;
+        }
+        // One bucket of slack: rows written before ids and created_at shared a
+        // clock read can sit a few ms on the other side of a day boundary.
+        int fromBucket = MessageBuckets.ofMillis(cutoff.toEpochMilli()) - 1;
+        for (int bucket : bucketIds(session.execute(selectBucketsFrom.bind(conversationId, fromBucket)))) {
+            for (Row row : session.execute(selectBucketSince.bind(conversationId, bucket, cutoff))) {
+                out.add(fromRow(row));
+            }
         }
         return out;
     }
 
+    /**
+     * Insert values: {@code keys}, then the blob content columns, then the
+     * text ones when {@code text-ciphertext-writes} is on. Otherwise the text
+     * columns are left unset rather than bound to null, so no tombstones.
+     */
+    private Object[] withContent(Message m, Object... keys) {
+        int content = textCiphertextWrites ? 4 : 2;
+        Object[] values = Arrays.copyOf(keys, keys.length + content);
+        values[keys.length] = ByteBuffer.wrap(m.getContentCipher());
+        values[keys.length + 1] = ByteBuffer.wrap(m.getContentIv());
+        if (textCiphertextWrites) {
+            values[keys.length + 2] = BASE64.encodeToString(m.getContentCipher());
+            values[keys.length + 3] = BASE64.encodeToString(m.getContentIv());
+        }
+        return values;
+    }
+
     private Message fromRow(Row row) {
         Instant edited = row.getInstant("edited_at");
         Boolean deleted = row.getBoolean("deleted");
@@ -321,23 +763,23 @@ public class CassandraMessageStore implements MessageStore {
                 .id(row.getLong("message_id"))
                 .conversationId(row.getLong("conversation_id"))
                 .senderId(row.getLong("sender_id"))
-                .contentCipherB64(row.getString("content_cipher_b64"))
-                .contentIvB64(row.getString("content_iv_b64"))
+                .contentCipher(content(row, "content_cipher"))
+                .contentIv(content(row, "content_iv"))
                 .createdAt(LocalDateTime.ofInstant(row.getInstant("created_at"), ZoneOffset.UTC))
                 .editedAt(edited == null ? null : LocalDateTime.ofInstant(edited, ZoneOffset.UTC))
                 .deleted(Boolean.TRUE.equals(deleted))
                 .build();
     }
 
-    private Message fromSenderRow(CassandraMessageBySender row) {
-        return Message.builder()
-                .id(row.getKey().getMessageId())
-                .conversationId(row.getKey().getConversationId())
-                .senderId(row.getKey().getSenderId())
-                .contentCipherB64(row.getContentCipherB64())
-                .contentIvB64(row.getContentIvB64())
-                .createdAt(LocalDateTime.ofInstant(row.getKey().getCreatedAt(), ZoneOffset.UTC))
-                .build();
+    /** The blob column, or the base64 text column for rows written before blobs existed. */
+    private static byte[] content(Row row, String column) {
+        ByteBuffer blob = row.getByteBuffer(column);
+        if (blob != null) {
+            byte[] out = new byte[blob.remaining()];
+            blob.duplicate().get(out);
+            return out;
+        }
+        String text = row.getString(column + "_b64");
+        return text == null ? null : Base64.getDecoder().decode(text);
     }
 }
-
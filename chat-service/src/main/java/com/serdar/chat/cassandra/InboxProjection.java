@@ -0,0 +1,309 @@
+package com.serdar.chat.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.serdar.chat.model.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user conversation list in {@code conversations_by_user}: one partition
+ * per user, one row per conversation they are in.
+ *
+ * A row holds the direct-chat peer, mute and pin state, when the user joined
+ * and the conversation's newest message as stored ciphertext. Message cells
+ * are written {@code USING TIMESTAMP} derived from the message itself, so
+ * sends that land out of order still settle on the newest one. Edits and
+ * deletes go to separate {@code edited_*} cells that only apply while they
+ * name the current last message. A row without {@code joined_at} is not a
+ * membership and is ignored.
+ *
+ * Partitions are filled lazily: the static {@code built} flag is set once a
+ * user's rows have been rebuilt from MySQL and history, and the write paths
+ * keep them current from then on. A user is in a few hundred conversations
+ * at most, so the partition is read whole and ordered in memory; clustering
+ * on activity would turn every message into a delete and insert per member.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class InboxProjection {
+
+    /** A user's view of one conversation. {@code lastMessage} is null before the first message. */
+    public record Entry(long conversationId, long peerId, boolean muted, boolean pinned,
+                        LocalDateTime joinedAt, Message lastMessage) {
+
+        public LocalDateTime lastActivityAt() {
+            if (lastMessage == null || lastMessage.getCreatedAt().isBefore(joinedAt)) return joinedAt;
+            return lastMessage.getCreatedAt();
+        }
+    }
+
+    private final CqlSession session;
+    private final CassandraMessageStore store;
+
+    private volatile boolean initialized;
+    private PreparedStatement selectUser;
+    private PreparedStatement selectLastMessageId;
+    private PreparedStatement upsertMembership;
+    private PreparedStatement upsertMembershipAt;
+    private PreparedStatement upsertLastMessage;
+    private PreparedStatement upsertEdit;
+    private PreparedStatement updateMuted;
+    private PreparedStatement markBuilt;
+    private PreparedStatement deleteRow;
+    private PreparedStatement deleteUser;
+
+    void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        synchronized (this) {
+            if (initialized) {
+                return;
+            }
+            store.ensureInitialized();
+            session.execute("""
+                    CREATE TABLE IF NOT EXISTS conversations_by_user (
+                        user_id bigint,
+                        conversation_id bigint,
+                        built boolean STATIC,
+                        peer_id bigint,
+                        muted boolean,
+                        pinned boolean,
+                        joined_at timestamp,
+                        last_message_id bigint,
+                        last_sender_id bigint,
+                        last_message_at timestamp,
+                        last_cipher blob,
+                        last_iv blob,
+                        edited_message_id bigint,
+                        edited_cipher blob,
+                        edited_iv blob,
+                        edited_at timestamp,
+                        edited_deleted boolean,
+                        PRIMARY KEY (user_id, conversation_id)
+                    )
+                    """);
+            selectUser = session.prepare(
+                    "SELECT conversation_id, built, peer_id, muted, pinned, joined_at, last_message_id, last_sender_id,"
+                            + " last_message_at, last_cipher, last_iv, edited_message_id, edited_cipher, edited_iv,"
+                            + " edited_at, edited_deleted FROM conversations_by_user WHERE user_id = ?");
+            selectLastMessageId = session.prepare(
+                    "SELECT last_message_id FROM conversations_by_user WHERE user_id = ? AND conversation_id = ?");
+            upsertMembership = session.prepare(
+                    "UPDATE conversations_by_user SET peer_id = ?, muted = ?, pinned = ?, joined_at = ?"
+                            + " WHERE user_id = ? AND conversation_id = ?");
+            upsertMembershipAt = session.prepare(
+                    "UPDATE conversations_by_user USING TIMESTAMP ? SET peer_id = ?, muted = ?, pinned = ?, joined_at = ?"
+                            + " WHERE user_id = ? AND conversation_id = ?");
+            upsertLastMessage = session.prepare(
+                    "UPDATE conversations_by_user USING TIMESTAMP ? SET last_message_id = ?, last_sender_id = ?,"
+                            + " last_message_at = ?, last_cipher = ?, last_iv = ?"
+                            + " WHERE user_id = ? AND conversation_id = ?");
+            upsertEdit = session.prepare(
+                    "UPDATE conversations_by_user SET edited_message_id = ?, edited_cipher = ?, edited_iv = ?,"
+                            + " edited_at = ?, edited_deleted = ? WHERE user_id = ? AND conversation_id = ?");
+            updateMuted = session.prepare(
+                    "UPDATE conversations_by_user SET muted = ? WHERE user_id = ? AND conversation_id = ?");
+            markBuilt = session.prepare(
+                    "UPDATE conversations_by_user USING TIMESTAMP ? SET built = true WHERE user_id = ?");
+            deleteRow = session.prepare(
+                    "DELETE FROM conversations_by_user WHERE user_id = ? AND conversation_id = ?");
+            deleteUser = session.prepare(
+                    "DELETE FROM conversations_by_user WHERE user_id = ?");
+            initialized = true;
+        }
+    }
+
+    /** The user's conversations in no particular order, or empty if the partition was never built. */
+    public Optional<List<Entry>> read(long userId) {
+        ensureInitialized();
+        boolean built = false;
+        List<Entry> out = new ArrayList<>();
+        for (Row row : session.execute(selectUser.bind(userId))) {
+            built |= Boolean.TRUE.equals(row.getBoolean("built"));
+            if (row.isNull("conversation_id") || row.isNull("joined_at")) {
+                continue;
+            }
+            out.add(entryOf(row));
+        }
+        return built ? Optional.of(out) : Optional.empty();
+    }
+
+    /**
+     * Writes {@code entries} as the user's full list and marks the partition
+     * built. Membership cells and the flag are timestamped at {@code readAt},
+     * when the caller started reading MySQL, so a leave, mute or user drop
+     * written while the rebuild runs is not overwritten by its older view.
+     */
+    public void rebuild(long userId, List<Entry> entries, Instant readAt) {
+        ensureInitialized();
+        long at = TimeUnit.MILLISECONDS.toMicros(readAt.toEpochMilli());
+        for (Entry e : entries) {
+            session.execute(upsertMembershipAt.bind(at, e.peerId(), e.muted(), e.pinned(),
+                    e.joinedAt().toInstant(ZoneOffset.UTC), userId, e.conversationId()));
+            if (e.lastMessage() != null) {
+                Message m = e.lastMessage();
+                session.execute(lastMessage(userId, m));
+                if (m.getEditedAt() != null || m.isDeleted()) {
+                    session.execute(edit(userId, m));
+                }
+            }
+        }
+        session.execute(markBuilt.bind(at, userId));
+    }
+
+    public void joined(long userId, long conversationId, long peerId, boolean muted, boolean pinned,
+                       LocalDateTime joinedAt) {
+        afterCommit(() -> logFailure(session.executeAsync(
+                membership(userId, conversationId, peerId, muted, pinned, joinedAt)), userId, conversationId));
+    }
+
+    public void left(long userId, long conversationId) {
+        afterCommit(() -> logFailure(session.executeAsync(deleteRow.bind(userId, conversationId)), userId, conversationId));
+    }
+
+    public void muted(long userId, long conversationId, boolean muted) {
+        afterCommit(() -> logFailure(session.executeAsync(updateMuted.bind(muted, userId, conversationId)),
+                userId, conversationId));
+    }
+
+    /** Drops the user's whole list; rows for them in other users' lists go through {@link #left}. */
+    public void dropUser(long userId) {
+        afterCommit(() -> logFailure(session.executeAsync(deleteUser.bind(userId)), userId, 0));
+    }
+
+    /** A new message reached {@code userIds}. Async; failures are logged. */
+    public void messageStored(Message m, Collection<Long> userIds) {
+        ensureInitialized();
+        for (long userId : userIds) {
+            logFailure(session.executeAsync(lastMessage(userId, m)), userId, m.getConversationId());
+        }
+    }
+
+    /**
+     * An edit or delete of {@code m}. Only written when it is still the last
+     * message in {@code readerId}'s row, so editing an older message cannot
+     * displace the overlay of the newest one.
+     */
+    public void messageChanged(Message m, long readerId, Collection<Long> userIds) {
+        ensureInitialized();
+        Row current = session.execute(selectLastMessageId.bind(readerId, m.getConversationId())).one();
+        if (current == null || current.isNull("last_message_id") || current.getLong("last_message_id") != m.getId()) {
+            return;
+        }
+        for (long userId : userIds) {
+            logFailure(session.executeAsync(edit(userId, m)), userId, m.getConversationId());
+        }
+    }
+
+    private BoundStatement membership(long userId, long conversationId, long peerId, boolean muted, boolean pinned,
+                                      LocalDateTime joinedAt) {
+        ensureInitialized();
+        return upsertMembership.bind(peerId, muted, pinned, joinedAt.toInstant(ZoneOffset.UTC), userId, conversationId);
+    }
+
+    private BoundStatement lastMessage(long userId, Message m) {
+        return upsertLastMessage.bind(writeTimeOf(m), m.getId(), m.getSenderId(),
+                m.getCreatedAt().toInstant(ZoneOffset.UTC), wrap(m.getContentCipher()), wrap(m.getContentIv()),
+                userId, m.getConversationId());
+    }
+
+    private BoundStatement edit(long userId, Message m) {
+        Instant editedAt = m.getEditedAt() == null ? null : m.getEditedAt().toInstant(ZoneOffset.UTC);
+        return upsertEdit.bind(m.getId(),
+                m.isDeleted() ? null : wrap(m.getContentCipher()),
+                m.isDeleted() ? null : wrap(m.getContentIv()),
+                editedAt, m.isDeleted(), userId, m.getConversationId());
+    }
+
+    /**
+     * Micros of the message's creation plus its id's sequence bits (see
+     * {@link com.serdar.chat.service.MessageIdGenerator}) as the
+     * sub-millisecond part, so messages in the same millisecond keep their
+     * order and any later row delete, written at wall-clock time, still
+     * shadows the cells.
+     */
+    static long writeTimeOf(Message m) {
+        long created = m.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return TimeUnit.MILLISECONDS.toMicros(created) + Math.min(Math.floorMod(m.getId(), 1024L), 999L);
+    }
+
+    static Entry entryOf(Row row) {
+        long conversationId = row.getLong("conversation_id");
+        Message last = null;
+        if (!row.isNull("last_message_id")) {
+            long messageId = row.getLong("last_message_id");
+            boolean edited = !row.isNull("edited_message_id") && row.getLong("edited_message_id") == messageId;
+            Instant editedAt = edited ? row.getInstant("edited_at") : null;
+            last = Message.builder()
+                    .id(messageId)
+                    .conversationId(conversationId)
+                    .senderId(row.getLong("last_sender_id"))
+                    .contentCipher(bytes(row.getByteBuffer(edited ? "edited_cipher" : "last_cipher")))
+                    .contentIv(bytes(row.getByteBuffer(edited ? "edited_iv" : "last_iv")))
+                    .createdAt(LocalDateTime.ofInstant(row.getInstant("last_message_at"), ZoneOffset.UTC))
+                    .editedAt(editedAt == null ? null : LocalDateTime.ofInstant(editedAt, ZoneOffset.UTC))
+                    .deleted(edited && Boolean.TRUE.equals(row.getBoolean("edited_deleted")))
+                    .build();
+        }
+        return new Entry(
+                conversationId,
+                row.isNull("peer_id") ? 0 : row.getLong("peer_id"),
+                Boolean.TRUE.equals(row.getBoolean("muted")),
+                Boolean.TRUE.equals(row.getBoolean("pinned")),
+                LocalDateTime.ofInstant(row.getInstant("joined_at"), ZoneOffset.UTC),
+                last);
+    }
+
+    private static ByteBuffer wrap(byte[] bytes) {
+        return bytes == null ? null : ByteBuffer.wrap(bytes);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        if (buffer == null) return null;
+        byte[] out = new byte[buffer.remaining()];
+        buffer.duplicate().get(out);
+        return out;
+    }
+
+    /** Membership writes wait for the MySQL change to commit, like the roster invalidation. */
+    private void afterCommit(Runnable write) {
+        ensureInitialized();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                write.run();
+            }
+        });
+    }
+
+    private static void logFailure(CompletionStage<?> write, long userId, long conversationId) {
+        write.whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("Inbox write failed for user {} conversation {}: {}", userId, conversationId, error.toString());
+            }
+        });
+    }
+}
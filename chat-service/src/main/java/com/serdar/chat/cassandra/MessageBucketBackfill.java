@@ -0,0 +1,123 @@
+package com.serdar.chat.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Online copy of {@code messages_by_conversation} into the day-bucketed layout.
+ *
+ * Runs on a background thread after startup while the service keeps serving
+ * traffic with dual writes. Each row is re-inserted {@code USING TIMESTAMP}
+ * of its original insert, so an edit or delete that was dual-written while
+ * the copy was running always wins over the older copied cells. Finished
+ * conversations are checkpointed in {@code message_bucket_backfill}, which
+ * makes the job safe to restart or to run on several instances at once.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageBucketBackfill {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final CqlSession session;
+    private final CassandraMessageStore store;
+
+    @Value("${app.messages.bucket-backfill-enabled}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread worker = new Thread(this::runSafely, "message-bucket-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.warn("Message bucket backfill stopped: {}", e.toString());
+        }
+    }
+
+    void run() {
+        store.ensureInitialized();
+        session.execute("""
+                CREATE TABLE IF NOT EXISTS message_bucket_backfill (
+                    conversation_id bigint PRIMARY KEY,
+                    rows_copied bigint,
+                    completed_at timestamp
+                )
+                """);
+        PreparedStatement isDone = session.prepare(
+                "SELECT conversation_id FROM message_bucket_backfill WHERE conversation_id = ?");
+        PreparedStatement selectRows = session.prepare(
+                "SELECT conversation_id, created_at, message_id, sender_id, content_cipher, content_iv,"
+                        + " content_cipher_b64, content_iv_b64, edited_at, deleted, WRITETIME(sender_id) AS written_at"
+                        + " FROM messages_by_conversation WHERE conversation_id = ?");
+        PreparedStatement insert = session.prepare(
+                "INSERT INTO messages_by_conversation_bucket (conversation_id, bucket, created_at, message_id,"
+                        + " sender_id, content_cipher, content_iv, content_cipher_b64, content_iv_b64, edited_at, deleted)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) USING TIMESTAMP ?");
+        PreparedStatement index = session.prepare(
+                "INSERT INTO message_buckets_by_conversation (conversation_id, bucket) VALUES (?, ?)");
+        PreparedStatement markDone = session.prepare(
+                "INSERT INTO message_bucket_backfill (conversation_id, rows_copied, completed_at) VALUES (?, ?, ?)");
+
+        long started = System.nanoTime();
+        int conversations = 0;
+        long copied = 0;
+        SimpleStatement partitions = SimpleStatement
+                .newInstance("SELECT DISTINCT conversation_id FROM messages_by_conversation")
+                .setPageSize(PAGE_SIZE);
+        for (Row partition : session.execute(partitions)) {
+            long conversationId = partition.getLong("conversation_id");
+            if (session.execute(isDone.bind(conversationId)).one() != null) {
+                continue;
+            }
+            long rows = 0;
+            Integer lastBucket = null;
+            for (Row row : session.execute(selectRows.bind(conversationId).setPageSize(PAGE_SIZE))) {
+                long messageId = row.getLong("message_id");
+                int bucket = MessageBuckets.ofMessageId(messageId);
+                long writtenAt = row.isNull("written_at")
+                        ? TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())
+                        : row.getLong("written_at");
+                session.execute(insert.bind(
+                        conversationId, bucket, row.getInstant("created_at"), messageId,
+                        row.getLong("sender_id"), row.getByteBuffer("content_cipher"), row.getByteBuffer("content_iv"),
+                        row.getString("content_cipher_b64"), row.getString("content_iv_b64"),
+                        row.getInstant("edited_at"), row.isNull("deleted") ? null : row.getBoolean("deleted"),
+                        writtenAt));
+                if (lastBucket == null || lastBucket != bucket) {
+                    session.execute(index.bind(conversationId, bucket));
+                    lastBucket = bucket;
+                }
+                rows++;
+            }
+            session.execute(markDone.bind(conversationId, rows, Instant.now()));
+            conversations++;
+            copied += rows;
+            if (conversations % 100 == 0) {
+                log.info("Message bucket backfill: {} conversations, {} rows copied so far", conversations, copied);
+            }
+        }
+        log.info("Message bucket backfill finished: {} conversations, {} rows in {} s",
+                conversations, copied, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+}
@@ -0,0 +1,27 @@
+package com.serdar.chat.cassandra;
+
+import com.serdar.chat.service.MessageIdGenerator;
+
+import java.time.Duration;
+
+/**
+ * Time buckets for {@code messages_by_conversation_bucket}. A conversation's
+ * history is split into one partition per UTC day so an active group never
+ * grows a single unbounded partition. The bucket is derived from the
+ * timestamp encoded in the message id, so point reads, edits and deletes can
+ * locate the partition from the id alone.
+ */
+final class MessageBuckets {
+
+    static final long BUCKET_MILLIS = Duration.ofDays(1).toMillis();
+
+    private MessageBuckets() {}
+
+    static int ofMessageId(long messageId) {
+        return ofMillis(MessageIdGenerator.timestampMillis(messageId));
+    }
+
+    static int ofMillis(long epochMillis) {
+        return (int) Math.floorDiv(epochMillis, BUCKET_MILLIS);
+    }
+}
@@ -0,0 +1,111 @@
+package com.serdar.chat.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies keys from the old {@code messages_by_sender} table, which also held
+ * a full ciphertext copy, into the key-only {@code message_keys_by_sender}.
+ *
+ * Runs while {@code sender-keys-migrating} is on; reads merge both tables
+ * until then. Keys are written {@code USING TIMESTAMP} of the source row, so a
+ * delete issued while the copy runs still wins. Finished partitions are
+ * checkpointed in {@code message_sender_key_backfill}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SenderKeyBackfill {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final CqlSession session;
+    private final CassandraMessageStore store;
+
+    @Value("${app.messages.sender-keys-migrating}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread worker = new Thread(this::runSafely, "sender-key-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.warn("Sender key backfill stopped: {}", e.toString());
+        }
+    }
+
+    void run() {
+        store.ensureInitialized();
+        session.execute("""
+                CREATE TABLE IF NOT EXISTS message_sender_key_backfill (
+                    conversation_id bigint,
+                    sender_id bigint,
+                    keys_copied bigint,
+                    completed_at timestamp,
+                    PRIMARY KEY ((conversation_id, sender_id))
+                )
+                """);
+        PreparedStatement isDone = session.prepare(
+                "SELECT conversation_id FROM message_sender_key_backfill WHERE conversation_id = ? AND sender_id = ?");
+        PreparedStatement selectKeys = session.prepare(
+                "SELECT created_at, message_id, WRITETIME(content_iv_b64) AS written_at"
+                        + " FROM messages_by_sender WHERE conversation_id = ? AND sender_id = ?");
+        PreparedStatement insert = session.prepare(
+                "INSERT INTO message_keys_by_sender (conversation_id, sender_id, created_at, message_id)"
+                        + " VALUES (?, ?, ?, ?) USING TIMESTAMP ?");
+        PreparedStatement markDone = session.prepare(
+                "INSERT INTO message_sender_key_backfill (conversation_id, sender_id, keys_copied, completed_at)"
+                        + " VALUES (?, ?, ?, ?)");
+
+        long started = System.nanoTime();
+        int partitions = 0;
+        long copied = 0;
+        SimpleStatement distinct = SimpleStatement
+                .newInstance("SELECT DISTINCT conversation_id, sender_id FROM messages_by_sender")
+                .setPageSize(PAGE_SIZE);
+        for (Row partition : session.execute(distinct)) {
+            long conversationId = partition.getLong("conversation_id");
+            long senderId = partition.getLong("sender_id");
+            if (session.execute(isDone.bind(conversationId, senderId)).one() != null) {
+                continue;
+            }
+            long keys = 0;
+            for (Row row : session.execute(selectKeys.bind(conversationId, senderId).setPageSize(PAGE_SIZE))) {
+                long writtenAt = row.isNull("written_at")
+                        ? TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())
+                        : row.getLong("written_at");
+                session.execute(insert.bind(
+                        conversationId, senderId, row.getInstant("created_at"), row.getLong("message_id"), writtenAt));
+                keys++;
+            }
+            session.execute(markDone.bind(conversationId, senderId, keys, Instant.now()));
+            partitions++;
+            copied += keys;
+            if (partitions % 100 == 0) {
+                log.info("Sender key backfill: {} partitions, {} keys copied so far", partitions, copied);
+            }
+        }
+        log.info("Sender key backfill finished: {} partitions, {} keys in {} s",
+                partitions, copied, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+}
@@ -1,11 +1,21 @@
 package com.serdar.chat.client;
 
+import com.serdar.common.cache.AccountFrozenEvent;
+import com.serdar.common.cache.FrozenStateCache;
 import com.serdar.proto.auth.AuthServiceGrpc;
+import com.serdar.proto.common.IdList;
 import com.serdar.proto.common.IdRequest;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Slf4j
 @Component
 public class AuthClient {
@@ -13,13 +23,58 @@ public class AuthClient {
     @GrpcClient("auth-service")
     private AuthServiceGrpc.AuthServiceBlockingStub stub;
 
+    @GrpcClient("auth-service")
+    private AuthServiceGrpc.AuthServiceFutureStub futureStub;
+
+    @Value("${app.remote-checks.deadline-millis}")
+    private long deadlineMillis;
+
+    private final FrozenStateCache frozen = new FrozenStateCache();
+
     /** Fail open when auth-service is temporarily unreachable (startup / restart). */
     public boolean isFrozen(long userId) {
         try {
-            return stub.getCredentialsById(IdRequest.newBuilder().setId(userId).build()).getFrozen();
+            return frozen.isFrozen(userId,
+                    id -> stub.getCredentialsById(IdRequest.newBuilder().setId(id).build()).getFrozen());
         } catch (Exception e) {
             log.warn("auth-service unavailable for isFrozen({}): {}", userId, e.getMessage());
             return false;
         }
     }
+
+    /**
+     * Non-blocking {@link #isFrozen}: a cache hit completes immediately,
+     * a miss asks auth-service within the remote-check deadline. Fails open.
+     */
+    public CompletableFuture<Boolean> isFrozenAsync(long userId) {
+        Boolean cached = frozen.cached(userId);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        long stamp = frozen.loadStamp();
+        return GrpcFutures.toCompletable(futureStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                        .getCredentialsById(IdRequest.newBuilder().setId(userId).build()))
+                .thenApply(c -> {
+                    frozen.putLoaded(userId, c.getFrozen(), stamp);
+                    return c.getFrozen();
+                })
+                .exceptionally(e -> {
+                    log.warn("auth-service unavailable for isFrozen({}): {}", userId, e.getMessage());
+                    return false;
+                });
+    }
+
+    /** Frozen subset of {@code userIds} with at most one auth-service call; fails open like {@link #isFrozen}. */
+    public Set<Long> frozenAmong(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return Set.of();
+        try {
+            return frozen.frozenAmong(userIds, ids -> new HashSet<>(
+                    stub.getFrozenStates(IdList.newBuilder().addAllIds(ids).build()).getIdsList()));
+        } catch (Exception e) {
+            log.warn("auth-service unavailable for frozenAmong({} ids): {}", userIds.size(), e.getMessage());
+            return Set.of();
+        }
+    }
+
+    public void onFrozenChanged(AccountFrozenEvent event) {
+        frozen.apply(event);
+    }
 }
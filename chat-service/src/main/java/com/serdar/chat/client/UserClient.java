@@ -6,12 +6,17 @@ import com.serdar.proto.common.IdRequest;
 import com.serdar.proto.user.BlockStatusRequest;
 import com.serdar.proto.user.UserProfile;
 import com.serdar.proto.user.UserServiceGrpc;
+import com.serdar.proto.user.ViewersBlockingSenderRequest;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class UserClient {
@@ -19,12 +24,26 @@ public class UserClient {
     @GrpcClient("user-service")
     private UserServiceGrpc.UserServiceBlockingStub stub;
 
+    @GrpcClient("user-service")
+    private UserServiceGrpc.UserServiceFutureStub futureStub;
+
+    @Value("${app.remote-checks.deadline-millis}")
+    private long deadlineMillis;
+
     public boolean isBlockedEitherWay(long a, long b) {
         return GrpcActorContext.callAs(a, () -> stub.isBlockedEitherWay(
                 BlockStatusRequest.newBuilder().setCallerId(a).setOtherId(b).build()
         ).getValue());
     }
 
+    /** Non-blocking {@link #isBlockedEitherWay}, bounded by the remote-check deadline. */
+    public CompletableFuture<Boolean> isBlockedEitherWayAsync(long a, long b) {
+        return GrpcActorContext.callAs(a, () -> GrpcFutures.toCompletable(
+                futureStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS).isBlockedEitherWay(
+                        BlockStatusRequest.newBuilder().setCallerId(a).setOtherId(b).build())
+        )).thenApply(r -> r.getValue());
+    }
+
     public boolean blockedByMe(long me, long other) {
         return GrpcActorContext.callAs(me, () -> stub.blockStatus(
                 BlockStatusRequest.newBuilder().setCallerId(me).setOtherId(other).build()
@@ -47,6 +66,14 @@ public class UserClient {
         });
     }
 
+    /** Which of {@code viewerIds} have blocked {@code senderId}, in a single round trip. */
+    public Set<Long> viewersBlocking(long senderId, Collection<Long> viewerIds) {
+        if (viewerIds.isEmpty()) return Set.of();
+        return GrpcActorContext.callAs(senderId, () -> new HashSet<>(stub.viewersBlockingSender(
+                ViewersBlockingSenderRequest.newBuilder().setSenderId(senderId).addAllViewerIds(viewerIds).build()
+        ).getIdsList()));
+    }
+
     public List<Long> friendIds(long userId) {
         return GrpcActorContext.callAs(userId, () -> {
             IdList r = stub.listFriendIds(IdRequest.newBuilder().setId(userId).build());
@@ -20,6 +20,12 @@ public class ConversationParticipant {
     @Column(name = "user_id", nullable = false)         private Long userId;
 
     @Column(nullable = false) private LocalDateTime joinedAt;
+    /**
+     * Written on insert and afterwards only by forward-only updates (the
+     * read position buffer, a rejoin), so a save of an entity loaded before
+     * a flush can't move it back.
+     */
+    @Column(name = "last_read_at", updatable = false)
     private LocalDateTime lastReadAt;
     private LocalDateTime deletedAt;
     @Builder.Default
@@ -42,4 +48,12 @@ public class ConversationParticipant {
     @Column(name = "can_add_members")
     @Builder.Default
     private Boolean canAddMembers = false;
+    /**
+     * Unread messages since lastReadAt. Changed only through the repository's
+     * update queries so a stale entity save can't undo a concurrent increment;
+     * null until {@code UnreadCounterRepair} has computed it for an old row.
+     */
+    @Column(name = "unread_count", updatable = false)
+    @Builder.Default
+    private Integer unreadCount = 0;
 }
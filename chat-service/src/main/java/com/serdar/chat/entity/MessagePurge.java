@@ -0,0 +1,63 @@
+package com.serdar.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A queued Cassandra purge. CONVERSATION drops a whole conversation's history
+ * (senderIds lists everyone whose sender-key partition goes with it); SENDER
+ * soft-deletes one user's messages in a conversation. Rows are kept after
+ * they finish as a record of what was purged.
+ */
+@Entity
+@Table(name = "message_purges", indexes = {
+        @Index(name = "idx_message_purges_status", columnList = "status, updated_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class MessagePurge {
+    public enum Kind { CONVERSATION, SENDER }
+    public enum Status { PENDING, RUNNING, DONE, FAILED }
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 32)
+    private Kind kind;
+
+    @Column(name = "conversation_id", nullable = false) private Long conversationId;
+    @Column(name = "sender_id") private Long senderId;
+    @Column(name = "sender_ids", columnDefinition = "TEXT") private String senderIds;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 32)
+    private Status status;
+
+    @Column(nullable = false) private Integer attempts;
+    /** Partitions dropped (CONVERSATION) or messages deleted (SENDER). */
+    @Column(name = "items_done", nullable = false) private Long itemsDone;
+    @Column(name = "last_error", length = 1024) private String lastError;
+
+    @Column(name = "created_at", nullable = false) private LocalDateTime createdAt;
+    @Column(name = "updated_at", nullable = false) private LocalDateTime updatedAt;
+    @Column(name = "finished_at") private LocalDateTime finishedAt;
+
+    public List<Long> senderIdList() {
+        if (senderIds == null || senderIds.isBlank()) return List.of();
+        return Arrays.stream(senderIds.split(",")).map(Long::parseLong).toList();
+    }
+
+    public static String joinIds(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
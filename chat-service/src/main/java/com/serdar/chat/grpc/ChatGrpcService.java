@@ -3,9 +3,11 @@ package com.serdar.chat.grpc;
 import com.serdar.chat.entity.Conversation;
 import com.serdar.chat.entity.ConversationParticipant;
 import com.serdar.chat.model.Message;
+import com.serdar.chat.model.MessageCursor;
 import com.serdar.chat.service.ChatDomainService;
 import com.serdar.chat.service.ConversationService;
 import com.serdar.chat.service.EventBroker;
+import com.serdar.chat.service.EventSubscription;
 import com.serdar.common.GrpcErrors;
 import com.serdar.common.ServiceException;
 import com.serdar.proto.chat.*;
@@ -84,10 +86,26 @@ public class ChatGrpcService extends ChatServiceGrpc.ChatServiceImplBase {
     @Override
     public void getPage(GetPageRequest req, StreamObserver<MessagePage> out) {
         guard(out, () -> {
+            if (req.getKeyset() || !req.getCursor().isEmpty()) {
+                var window = chat.getPageBefore(req.getConversationId(), req.getCallerId(), req.getCursor(), req.getSize());
+                MessagePage.Builder b = MessagePage.newBuilder()
+                        .setSize(req.getSize())
+                        .setHasMore(window.nextCursor() != null);
+                if (window.nextCursor() != null) b.setNextCursor(window.nextCursor());
+                window.messages().forEach(b::addMessages);
+                out.onNext(b.build()); out.onCompleted();
+                return;
+            }
             var page = chat.getPage(req.getConversationId(), req.getCallerId(), req.getPage(), req.getSize());
             MessagePage.Builder b = MessagePage.newBuilder()
-                    .setPage(req.getPage()).setSize(req.getSize()).setTotal(page.getTotalElements());
+                    .setPage(req.getPage()).setSize(req.getSize()).setTotal(page.getTotalElements())
+                    .setHasMore(page.hasNext());
             page.getContent().forEach(b::addMessages);
+            if (page.hasNext() && page.hasContent()) {
+                // Lets offset-mode clients switch to keyset paging from here on.
+                ChatMessage last = page.getContent().get(page.getNumberOfElements() - 1);
+                b.setNextCursor(new MessageCursor(last.getCreatedAtMillis(), last.getId()).encode());
+            }
             out.onNext(b.build()); out.onCompleted();
         });
     }
@@ -95,8 +113,9 @@ public class ChatGrpcService extends ChatServiceGrpc.ChatServiceImplBase {
     @Override
     public void getLatest(GetLatestRequest req, StreamObserver<MessageList> out) {
         guard(out, () -> {
-            MessageList.Builder b = MessageList.newBuilder();
-            chat.getLatest(req.getConversationId(), req.getCallerId(), req.getLimit()).forEach(b::addMessages);
+            var window = chat.getLatest(req.getConversationId(), req.getCallerId(), req.getCursor(), req.getLimit());
+            MessageList.Builder b = MessageList.newBuilder().addAllMessages(window.messages());
+            if (window.nextCursor() != null) b.setNextCursor(window.nextCursor());
             out.onNext(b.build()); out.onCompleted();
         });
     }
@@ -152,6 +171,27 @@ public class ChatGrpcService extends ChatServiceGrpc.ChatServiceImplBase {
         });
     }
 
+    @Override
+    public void getInbox(GetInboxRequest req, StreamObserver<InboxPage> out) {
+        guard(out, () -> {
+            var inbox = chat.inbox(req.getUserId(), req.getPage(), req.getSize());
+            InboxPage.Builder b = InboxPage.newBuilder()
+                    .setPage(req.getPage()).setSize(req.getSize())
+                    .setTotal(inbox.total()).setHasMore(inbox.hasMore());
+            for (var e : inbox.entries()) {
+                InboxEntry.Builder entry = InboxEntry.newBuilder()
+                        .setConversation(toProto(e.conversation()))
+                        .setUnreadCount(e.unread())
+                        .setMuted(e.muted())
+                        .setPinned(e.pinned())
+                        .setLastActivityAtMillis(e.lastActivityAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+                if (e.lastMessage() != null) entry.setLastMessage(e.lastMessage());
+                b.addEntries(entry);
+            }
+            out.onNext(b.build()); out.onCompleted();
+        });
+    }
+
     @Override
     public void createMessagingGroup(CreateMessagingGroupRequest req, StreamObserver<com.serdar.proto.chat.Conversation> out) {
         guard(out, () -> {
@@ -267,10 +307,11 @@ public class ChatGrpcService extends ChatServiceGrpc.ChatServiceImplBase {
     @Override
     public void subscribeEvents(IdRequest req, StreamObserver<ChatEvent> out) {
         long userId = req.getId();
-        broker.subscribe(userId, out);
+        EventSubscription subscription = broker.subscribe(userId, out, () -> broadcastOffline(userId));
 
         // Push a presence snapshot immediately so the client can render the friend list state.
-        try { out.onNext(chat.presenceSnapshotFor(userId)); } catch (Exception ignore) { /* stream closed */ }
+        // It goes through the stream's queue like every other event, so writes stay serialized.
+        try { subscription.offer(chat.presenceSnapshotFor(userId)); } catch (Exception ignore) { /* stream closed */ }
         try {
             chat.broadcastPresence(userId, true);
         } catch (Exception e) {
@@ -279,26 +320,30 @@ public class ChatGrpcService extends ChatServiceGrpc.ChatServiceImplBase {
 
         if (out instanceof ServerCallStreamObserver<ChatEvent> srv) {
             srv.setOnCancelHandler(() -> {
-                broker.unsubscribe(userId, out);
-                // The RPC's Context is already cancelled by the time this
-                // handler runs, so any downstream gRPC call made here would
-                // inherit that cancellation and fail with CANCELLED. Fork to
-                // a detached context so the offline-presence broadcast gets
-                // to complete. Swallow anything that still slips through — we
-                // don't want noisy stack traces on orderly disconnects.
-                Context forked = Context.ROOT.fork();
-                Context previous = forked.attach();
-                try {
-                    chat.broadcastPresence(userId, false);
-                } catch (Exception e) {
-                    log.debug("offline-presence broadcast suppressed for user {}: {}", userId, e.toString());
-                } finally {
-                    forked.detach(previous);
-                }
+                broker.unsubscribe(subscription);
+                broadcastOffline(userId);
             });
         }
     }
 
+    private void broadcastOffline(long userId) {
+        // The RPC's Context is already cancelled by the time this runs, so any
+        // downstream gRPC call made here would inherit that cancellation and
+        // fail with CANCELLED. Fork to a detached context so the
+        // offline-presence broadcast gets to complete. Swallow anything that
+        // still slips through — we don't want noisy stack traces on orderly
+        // disconnects.
+        Context forked = Context.ROOT.fork();
+        Context previous = forked.attach();
+        try {
+            chat.broadcastPresence(userId, false);
+        } catch (Exception e) {
+            log.debug("offline-presence broadcast suppressed for user {}: {}", userId, e.toString());
+        } finally {
+            forked.detach(previous);
+        }
+    }
+
     // -- helpers -------------------------------------------------------------
 
     private static com.serdar.proto.chat.Conversation toProto(Conversation c) {
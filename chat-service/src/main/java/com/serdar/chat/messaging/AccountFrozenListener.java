@@ -0,0 +1,21 @@
+package com.serdar.chat.messaging;
+
+import com.serdar.chat.client.AuthClient;
+import com.serdar.common.cache.AccountFrozenEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.chat-events.rabbit-enabled", havingValue = "true")
+public class AccountFrozenListener {
+
+    private final AuthClient authClient;
+
+    @RabbitListener(queues = "#{accountFrozenQueue.name}")
+    public void onFrozenChanged(AccountFrozenEvent event) {
+        authClient.onFrozenChanged(event);
+    }
+}
@@ -1,3 +0,0 @@
-package com.serdar.chat.messaging;
-
-public record ChatEventEnvelope(long userId, byte[] eventBytes, String originId) {}
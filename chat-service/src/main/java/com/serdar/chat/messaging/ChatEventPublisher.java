@@ -0,0 +1,152 @@
+package com.serdar.chat.messaging;
+
+import com.serdar.chat.service.StreamRegistry;
+import com.serdar.proto.chat.ChatEvent;
+import com.serdar.proto.chat.ChatEventRelay;
+import com.serdar.proto.chat.RelayedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relays chat events to other chat-service instances.
+ *
+ * Callers only enqueue. A single worker drains whatever has accumulated (up to
+ * {@link #MAX_BATCH} events), packs it into one protobuf {@link ChatEventRelay}
+ * per target instance and publishes those without waiting for the broker:
+ * confirms complete asynchronously and only feed the nack counter. An idle
+ * relay adds no delay; a busy one sends fewer, larger messages.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.chat-events.rabbit-enabled", havingValue = "true")
+public class ChatEventPublisher {
+
+    public static final String CONTENT_TYPE = "application/x-protobuf";
+
+    static final int MAX_BATCH = 256;
+    private static final int QUEUE_CAPACITY = 50_000;
+
+    private record Pending(String target, Collection<Long> userIds, ChatEvent event) {}
+
+    private final RabbitTemplate rabbit;
+    private final String originId;
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Counter messages;
+    private final Counter overflow;
+    private final Counter nacked;
+    private volatile Thread worker;
+
+    public ChatEventPublisher(RabbitTemplate chatRabbitTemplate, StreamRegistry registry, MeterRegistry meters) {
+        this.rabbit = chatRabbitTemplate;
+        this.originId = registry.instanceId();
+        this.messages = meters.counter("chat.events.relay.messages");
+        this.overflow = meters.counter("chat.events.relay.dropped");
+        this.nacked = meters.counter("chat.events.relay.nacked");
+        Gauge.builder("chat.events.relay.pending", queue, BlockingQueue::size).register(meters);
+    }
+
+    /** Queues {@code event} for the recipients among {@code userIds} that have a stream on {@code target}. */
+    public void publish(String target, Collection<Long> userIds, ChatEvent event) {
+        if (!queue.offer(new Pending(target, userIds, event))) {
+            overflow.increment();
+            log.warn("Chat event relay queue is full; dropped event for instance {}", target);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread t = new Thread(this::run, "chat-event-relay");
+        t.setDaemon(true);
+        worker = t;
+        t.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread t = worker;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Could not relay chat events: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** Publishes everything queued so far on the calling thread. */
+    void flush() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (queue.drainTo(batch, MAX_BATCH) > 0) {
+            try {
+                send(batch);
+            } catch (Exception e) {
+                log.warn("Could not relay chat events: {}", e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        Map<String, ChatEventRelay.Builder> byTarget = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            byTarget.computeIfAbsent(p.target(), k -> ChatEventRelay.newBuilder().setOriginId(originId))
+                    .addEvents(RelayedEvent.newBuilder().addAllUserIds(p.userIds()).setEvent(p.event()));
+        }
+        byTarget.forEach((target, relay) -> {
+            Message message = MessageBuilder.withBody(relay.build().toByteArray())
+                    .setContentType(CONTENT_TYPE)
+                    .setDeliveryMode(MessageDeliveryMode.NON_PERSISTENT)
+                    .build();
+            CorrelationData confirm = new CorrelationData();
+            confirm.getFuture().whenComplete((c, ex) -> {
+                if (ex != null || !c.isAck()) {
+                    nacked.increment();
+                    log.warn("Chat event relay to {} not confirmed: {}",
+                            target, ex != null ? ex.getMessage() : c.getReason());
+                }
+            });
+            rabbit.send(ChatEventRabbitConfig.EXCHANGE, target, message, confirm);
+            messages.increment();
+        });
+    }
+}
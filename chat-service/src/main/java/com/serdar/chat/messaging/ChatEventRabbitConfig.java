@@ -1,5 +1,8 @@
 package com.serdar.chat.messaging;
 
+import com.serdar.chat.service.StreamRegistry;
+import com.serdar.common.cache.AccountFrozenEvent;
+import com.serdar.common.cache.FriendshipChangedEvent;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -13,11 +16,13 @@ import org.springframework.context.annotation.Configuration;
 @ConditionalOnProperty(name = "app.chat-events.rabbit-enabled", havingValue = "true")
 public class ChatEventRabbitConfig {
 
-    public static final String EXCHANGE = "chat.events.exchange";
+    /** Direct exchange; each instance binds its queue with its own {@link StreamRegistry#instanceId()}. */
+    public static final String EXCHANGE = "chat.events.direct";
+    public static final String ROSTER_EXCHANGE = "chat.roster.exchange";
 
     @Bean
-    public FanoutExchange chatEventsExchange() {
-        return ExchangeBuilder.fanoutExchange(EXCHANGE).durable(true).build();
+    public DirectExchange chatEventsExchange() {
+        return ExchangeBuilder.directExchange(EXCHANGE).durable(true).build();
     }
 
     @Bean
@@ -26,8 +31,56 @@ public class ChatEventRabbitConfig {
     }
 
     @Bean
-    public Binding chatEventsBinding(Queue chatEventsQueue, FanoutExchange chatEventsExchange) {
-        return BindingBuilder.bind(chatEventsQueue).to(chatEventsExchange);
+    public Binding chatEventsBinding(Queue chatEventsQueue, DirectExchange chatEventsExchange, StreamRegistry registry) {
+        return BindingBuilder.bind(chatEventsQueue).to(chatEventsExchange).with(registry.instanceId());
+    }
+
+    /** Roster cache invalidations, fanned out to every chat-service instance. */
+    @Bean
+    public FanoutExchange rosterInvalidationExchange() {
+        return ExchangeBuilder.fanoutExchange(ROSTER_EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public Queue rosterInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding rosterInvalidationBinding(Queue rosterInvalidationQueue, FanoutExchange rosterInvalidationExchange) {
+        return BindingBuilder.bind(rosterInvalidationQueue).to(rosterInvalidationExchange);
+    }
+
+    /** Frozen-state changes published by auth-service; keeps AuthClient's cache current. */
+    @Bean
+    public FanoutExchange accountFrozenExchange() {
+        return ExchangeBuilder.fanoutExchange(AccountFrozenEvent.EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public Queue accountFrozenQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding accountFrozenBinding(Queue accountFrozenQueue, FanoutExchange accountFrozenExchange) {
+        return BindingBuilder.bind(accountFrozenQueue).to(accountFrozenExchange);
+    }
+
+    /** Friendship changes published by user-service; keeps presence audiences current. */
+    @Bean
+    public FanoutExchange friendshipChangedExchange() {
+        return ExchangeBuilder.fanoutExchange(FriendshipChangedEvent.EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public Queue friendshipChangedQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding friendshipChangedBinding(Queue friendshipChangedQueue, FanoutExchange friendshipChangedExchange) {
+        return BindingBuilder.bind(friendshipChangedQueue).to(friendshipChangedExchange);
     }
 
     @Bean
@@ -2,9 +2,11 @@ package com.serdar.chat.messaging;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.serdar.chat.service.EventBroker;
-import com.serdar.proto.chat.ChatEvent;
+import com.serdar.proto.chat.ChatEventRelay;
+import com.serdar.proto.chat.RelayedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
@@ -18,9 +20,17 @@ public class ChatEventRabbitListener {
     private final EventBroker broker;
 
     @RabbitListener(queues = "#{chatEventsQueue.name}")
-    public void onEvent(ChatEventEnvelope envelope) {
+    public void onEvent(Message message) {
+        String contentType = message.getMessageProperties().getContentType();
+        if (!ChatEventPublisher.CONTENT_TYPE.equals(contentType)) {
+            log.warn("Dropped chat event relay with content type {}", contentType);
+            return;
+        }
         try {
-            broker.deliverRemote(envelope.userId(), ChatEvent.parseFrom(envelope.eventBytes()), envelope.originId());
+            ChatEventRelay relay = ChatEventRelay.parseFrom(message.getBody());
+            for (RelayedEvent e : relay.getEventsList()) {
+                broker.deliverRemote(e.getUserIdsList(), e.getEvent(), relay.getOriginId());
+            }
         } catch (InvalidProtocolBufferException e) {
             log.warn("Dropped malformed chat event from RabbitMQ: {}", e.getMessage());
         }
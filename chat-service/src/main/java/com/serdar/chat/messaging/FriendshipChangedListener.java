@@ -0,0 +1,21 @@
+package com.serdar.chat.messaging;
+
+import com.serdar.chat.cache.PresenceAudienceIndex;
+import com.serdar.common.cache.FriendshipChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.chat-events.rabbit-enabled", havingValue = "true")
+public class FriendshipChangedListener {
+
+    private final PresenceAudienceIndex audiences;
+
+    @RabbitListener(queues = "#{friendshipChangedQueue.name}")
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        audiences.onFriendshipChanged(event);
+    }
+}
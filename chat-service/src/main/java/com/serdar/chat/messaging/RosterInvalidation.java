@@ -0,0 +1,6 @@
+package com.serdar.chat.messaging;
+
+import java.util.List;
+
+/** {@code joinedUserIds} lets presence audiences pick up the group without a rebuild. */
+public record RosterInvalidation(long conversationId, String originId, List<Long> joinedUserIds) {}
@@ -0,0 +1,20 @@
+package com.serdar.chat.messaging;
+
+import com.serdar.chat.cache.RosterCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.chat-events.rabbit-enabled", havingValue = "true")
+public class RosterInvalidationListener {
+
+    private final RosterCache rosters;
+
+    @RabbitListener(queues = "#{rosterInvalidationQueue.name}")
+    public void onInvalidation(RosterInvalidation message) {
+        rosters.onRemoteInvalidation(message);
+    }
+}
@@ -17,8 +17,8 @@ public class Message {
     private Long id;
     private Long conversationId;
     private Long senderId;
-    private String contentCipherB64;
-    private String contentIvB64;
+    private byte[] contentCipher;
+    private byte[] contentIv;
     private LocalDateTime createdAt;
     private LocalDateTime editedAt;
     @Builder.Default
@@ -0,0 +1,46 @@
+package com.serdar.chat.model;
+
+import com.serdar.common.ServiceException;
+
+import java.nio.ByteBuffer;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Keyset position inside a conversation's history: the (created_at, message_id)
+ * clustering key of the last message a client has seen. Reading "everything
+ * older than this cursor" is a bounded clustering-range slice, so every page
+ * costs the same regardless of how deep the client has scrolled.
+ *
+ * Clients only ever see the {@link #encode() opaque token}.
+ */
+public record MessageCursor(long createdAtMillis, long messageId) {
+
+    private static final int TOKEN_BYTES = 16;
+
+    public static MessageCursor of(Message m) {
+        return new MessageCursor(m.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli(), m.getId());
+    }
+
+    public String encode() {
+        byte[] raw = ByteBuffer.allocate(TOKEN_BYTES).putLong(createdAtMillis).putLong(messageId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /** Blank token means "start from the newest message". */
+    public static MessageCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token.trim());
+        } catch (IllegalArgumentException e) {
+            throw ServiceException.invalid("Invalid cursor");
+        }
+        if (raw.length != TOKEN_BYTES) throw ServiceException.invalid("Invalid cursor");
+        ByteBuffer buf = ByteBuffer.wrap(raw);
+        long createdAtMillis = buf.getLong();
+        long messageId = buf.getLong();
+        if (createdAtMillis <= 0 || messageId <= 0) throw ServiceException.invalid("Invalid cursor");
+        return new MessageCursor(createdAtMillis, messageId);
+    }
+}
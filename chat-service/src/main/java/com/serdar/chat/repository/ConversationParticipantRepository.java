@@ -1,8 +1,18 @@
 package com.serdar.chat.repository;
 
+import com.serdar.chat.entity.Conversation;
 import com.serdar.chat.entity.ConversationParticipant;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +24,56 @@ public interface ConversationParticipantRepository extends JpaRepository<Convers
     List<ConversationParticipant> findByUserIdAndDeletedAtIsNull(Long userId);
     long countByConversationIdAndDeletedAtIsNull(Long conversationId);
     void deleteByConversationId(Long conversationId);
+
+    /** Live conversations of one type that the user is an active member of, in one join. */
+    @Query("SELECT p.conversationId FROM ConversationParticipant p, Conversation c"
+            + " WHERE c.id = p.conversationId AND p.userId = :userId AND p.deletedAt IS NULL"
+            + " AND c.deletedAt IS NULL AND c.type = :type")
+    List<Long> findActiveConversationIds(@Param("userId") Long userId, @Param("type") Conversation.Type type);
+
+    /** Keyset scan over counters the repair job still has to compute. */
+    List<ConversationParticipant> findByIdGreaterThanAndUnreadCountIsNullAndDeletedAtIsNullOrderByIdAsc(
+            Long afterId, Pageable pageable);
+
+    /** One statement for the whole fan-out; a NULL (not yet repaired) counter stays NULL. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ConversationParticipant p SET p.unreadCount = p.unreadCount + 1"
+            + " WHERE p.conversationId = :conversationId AND p.userId IN :userIds AND p.deletedAt IS NULL")
+    int incrementUnread(@Param("conversationId") Long conversationId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Readers among {@code userIds} who had not read past a now-deleted
+     * message, locked so no increment or read lands between this and the
+     * matching {@link #decrementUnread}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM ConversationParticipant p"
+            + " WHERE p.conversationId = :conversationId AND p.userId IN :userIds AND p.deletedAt IS NULL"
+            + " AND p.unreadCount > 0 AND (p.lastReadAt IS NULL OR p.lastReadAt < :createdAt)")
+    List<ConversationParticipant> lockUnreadBefore(@Param("conversationId") Long conversationId,
+                                                   @Param("userIds") Collection<Long> userIds,
+                                                   @Param("createdAt") LocalDateTime createdAt);
+
+    /** Undo the increment for the rows {@link #lockUnreadBefore} returned. */
+    @Modifying
+    @Query("UPDATE ConversationParticipant p SET p.unreadCount = p.unreadCount - 1"
+            + " WHERE p.id IN :ids AND p.unreadCount > 0")
+    int decrementUnread(@Param("ids") Collection<Long> ids);
+
+    /** Moves the read position forward; the column is not written by entity saves. */
+    @Modifying
+    @Query("UPDATE ConversationParticipant p SET p.lastReadAt = :at"
+            + " WHERE p.id = :id AND (p.lastReadAt IS NULL OR p.lastReadAt < :at)")
+    int advanceLastReadAt(@Param("id") Long id, @Param("at") LocalDateTime at);
+
+    /** Clears the context so a later read in the same transaction sees the zero, not the loaded count. */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ConversationParticipant p SET p.unreadCount = 0 WHERE p.id = :id")
+    void resetUnread(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ConversationParticipant p SET p.unreadCount = :count WHERE p.id = :id AND p.unreadCount IS NULL")
+    int fillMissingUnread(@Param("id") Long id, @Param("count") int count);
 }
@@ -0,0 +1,31 @@
+package com.serdar.chat.repository;
+
+import com.serdar.chat.entity.MessagePurge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MessagePurgeRepository extends JpaRepository<MessagePurge, Long> {
+    List<MessagePurge> findTop20ByStatusOrderByIdAsc(MessagePurge.Status status);
+    List<MessagePurge> findTop20ByStatusAndUpdatedAtBeforeOrderByIdAsc(MessagePurge.Status status, LocalDateTime before);
+
+    /**
+     * Claim a purge for this worker. Matching on the status and updatedAt the
+     * worker saw means only one instance wins when several poll at once.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE MessagePurge p SET p.status = :running,"
+            + " p.attempts = p.attempts + 1, p.updatedAt = :now"
+            + " WHERE p.id = :id AND p.status = :seenStatus AND p.updatedAt = :seenUpdatedAt")
+    int claim(@Param("id") Long id,
+              @Param("seenStatus") MessagePurge.Status seenStatus,
+              @Param("seenUpdatedAt") LocalDateTime seenUpdatedAt,
+              @Param("now") LocalDateTime now,
+              @Param("running") MessagePurge.Status running);
+}
@@ -1,29 +1,60 @@
 package com.serdar.chat.repository;
 
 import com.serdar.chat.model.Message;
+import com.serdar.chat.model.MessageCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.function.IntConsumer;
 
 public interface MessageStore {
-    Message save(Message message);
+    /**
+     * Completes once the copy that reads are served from is acknowledged, so
+     * the caller can fan the message out without waiting on secondary tables.
+     */
+    CompletionStage<Message> save(Message message);
 
+    /**
+     * Single-row lookup. {@code createdAtMillis} is the client's copy of the
+     * clustering key; when it is missing or stale the key is derived from the
+     * timestamp encoded in the id, so the conversation is never scanned.
+     */
     Optional<Message> findMessage(long conversationId, long messageId, long createdAtMillis);
 
-    void deleteMessage(long conversationId, long messageId, long createdAtMillis);
+    /** Soft-delete a message previously returned by {@link #findMessage}. */
+    void deleteMessage(Message message);
 
-    void editMessage(long conversationId, long messageId, long createdAtMillis,
-                     String contentCipherB64, String contentIvB64, LocalDateTime editedAt);
+    /** Overwrite the content of a message previously returned by {@link #findMessage}. */
+    void editMessage(Message message, byte[] contentCipher, byte[] contentIv, LocalDateTime editedAt);
 
-    void deleteByConversationId(long conversationId);
+    /**
+     * Drop a whole conversation's history. {@code senderIds} should cover
+     * everyone who ever posted in it so their sender-key partitions go too.
+     * {@code progress} gets the running count after each bounded batch.
+     * Returns the number of partition deletes issued.
+     */
+    int deleteByConversationId(long conversationId, Collection<Long> senderIds, IntConsumer progress);
 
-    void deleteBySenderInConversation(long conversationId, long senderId);
+    /**
+     * Soft-delete every message a sender posted in a conversation, reporting
+     * the running count to {@code progress} after each bounded batch; returns how many.
+     */
+    int deleteBySenderInConversation(long conversationId, long senderId, IntConsumer progress);
 
     Page<Message> findByConversationIdOrderByCreatedAtDesc(long conversationId, Pageable pageable);
 
+    /**
+     * Newest-first slice of at most {@code limit} messages strictly older than
+     * {@code before} (or the newest messages when {@code before} is null).
+     * No total count is computed, so the cost does not depend on page depth.
+     */
+    List<Message> findPageBefore(long conversationId, MessageCursor before, int limit);
+
     long countByConversationId(long conversationId);
 
     long countUnreadFor(long conversationId, long meId, LocalDateTime lastRead);
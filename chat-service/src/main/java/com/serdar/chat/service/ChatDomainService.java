@@ -3,10 +3,17 @@ package com.serdar.chat.service;
 import com.serdar.chat.client.AuthClient;
 import com.serdar.chat.client.UserClient;
 import com.serdar.chat.config.ChatLimits;
+import com.serdar.chat.cache.ConversationRoster;
+import com.serdar.chat.cache.PresenceAudienceIndex;
+import com.serdar.chat.cache.RecentMessageCache;
+import com.serdar.chat.cache.RosterCache;
+import com.serdar.chat.cache.SeenMessageCache;
 import com.serdar.chat.cache.UnreadCacheService;
+import com.serdar.chat.cassandra.InboxProjection;
 import com.serdar.chat.entity.Conversation;
 import com.serdar.chat.entity.ConversationParticipant;
 import com.serdar.chat.model.Message;
+import com.serdar.chat.model.MessageCursor;
 import com.serdar.chat.repository.ConversationParticipantRepository;
 import com.serdar.chat.repository.ConversationRepository;
 import com.serdar.chat.repository.MessageStore;
@@ -14,6 +21,8 @@ import com.serdar.common.AesGcm;
 import com.serdar.common.ServiceException;
 import com.serdar.proto.chat.ChatEvent;
 import com.serdar.proto.chat.PresenceEntry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -23,10 +32,13 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Pattern;
 
 @Service
@@ -37,43 +49,78 @@ public class ChatDomainService {
     private final ConversationParticipantRepository participants;
     private final MessageStore messages;
     private final UnreadCacheService unreadCache;
+    private final SeenMessageCache seenMessages;
+    private final RecentMessageCache recent;
+    private final InboxProjection inboxes;
+    private final RosterCache rosters;
+    private final PresenceAudienceIndex audiences;
+    private final MessagePurgeService purges;
     private final AesGcm aes;
     private final UserClient userClient;
     private final AuthClient authClient;
     private final EventBroker broker;
+    private final ReadPositionBuffer readPositions;
+    private final TypingCoalescer typing;
+    private final PageDecryptor decryptor;
     private final ChatLimits limits;
+    private final MeterRegistry meters;
 
     // --- send / read messages -----------------------------------------------
 
-    @Transactional
+    /**
+     * Deliberately not transactional: the gRPC checks, encryption, Cassandra
+     * write and fan-out run without a JDBC connection. The only MySQL work is
+     * the conversation lookup and the unread increment, each its own short
+     * transaction. The frozen check runs while the conversation is looked up
+     * and the block check runs alongside it, so the remote checks cost one
+     * round trip rather than two.
+     */
     public Message send(long conversationId, long senderId, String plaintext) {
-        if (authClient.isFrozen(senderId)) {
-            throw ServiceException.forbidden("Account frozen");
-        }
+        Timer.Sample timing = Timer.start(meters);
         String content = limits.requireValidMessage(plaintext);
+        CompletableFuture<Boolean> frozen = authClient.isFrozenAsync(senderId);
         Conversation c = conversations.findByIdAndDeletedAtIsNull(conversationId)
                 .orElseThrow(() -> ServiceException.notFound("Conversation not found"));
         assertActiveMember(conversationId, senderId);
         // 1-1 direct conversations: check block state with the other participant.
+        CompletableFuture<Boolean> blocked = CompletableFuture.completedFuture(false);
         if (c.getType() == Conversation.Type.DIRECT) {
             long other = c.getUserAId().equals(senderId) ? c.getUserBId() : c.getUserAId();
-            if (userClient.isBlockedEitherWay(senderId, other))
-                throw ServiceException.forbidden("Blocked");
+            blocked = userClient.isBlockedEitherWayAsync(senderId, other);
+        }
+        if (await(frozen)) {
+            throw ServiceException.forbidden("Account frozen");
+        }
+        if (await(blocked)) {
+            throw ServiceException.forbidden("Blocked");
         }
-        AesGcm.Enc enc = aes.encrypt(content, AesGcm.aad(conversationId, senderId));
+        AesGcm.Sealed enc = aes.seal(content, AesGcm.aad(conversationId, senderId));
+        long id = MessageIdGenerator.nextId();
         Message m = messages.save(Message.builder()
-                .id(MessageIdGenerator.nextId())
+                .id(id)
                 .conversationId(conversationId)
                 .senderId(senderId)
-                .contentCipherB64(enc.cipherB64())
-                .contentIvB64(enc.ivB64())
-                .createdAt(LocalDateTime.now(ZoneOffset.UTC))
-                .build());
+                .contentCipher(enc.cipher())
+                .contentIv(enc.iv())
+                .createdAt(createdAtOf(id))
+                .build())
+                .toCompletableFuture().join();
 
         broadcastMessage(c, m, content);
+        timing.stop(Timer.builder("chat.send").publishPercentileHistogram().register(meters));
         return m;
     }
 
+    /** Joins a remote check, rethrowing its own failure rather than a CompletionException. */
+    private static <T> T await(CompletableFuture<T> check) {
+        try {
+            return check.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
     @Transactional
     public void deleteMessage(long conversationId, long messageId, long callerId, long createdAtMillis) {
         Conversation c = conversations.findByIdAndDeletedAtIsNull(conversationId)
@@ -84,9 +131,33 @@ public class ChatDomainService {
         if (m.getSenderId() == null || !m.getSenderId().equals(callerId)) {
             throw ServiceException.forbidden("Not the sender");
         }
-        messages.deleteMessage(conversationId, messageId, createdAtMillis);
+        messages.deleteMessage(m);
+        seenMessages.invalidate(conversationId);
         m.setDeleted(true);
-        broadcastMessageMutation(c, m, "MESSAGE_DELETED", "", true);
+        ConversationRoster roster = rosters.get(conversationId);
+        Set<Long> hidden = hiddenFrom(c, roster, callerId);
+        List<Long> counted = new ArrayList<>(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            long userId = roster.userId(i);
+            // A read position still in the buffer is newer than the row the update checks.
+            LocalDateTime readAt = readPositions.lastReadAt(conversationId, userId, null);
+            boolean read = readAt != null && !readAt.isBefore(m.getCreatedAt());
+            if (userId != callerId && !hidden.contains(userId) && !read) {
+                counted.add(userId);
+            }
+        }
+        if (!counted.isEmpty()) {
+            List<ConversationParticipant> unread = participants.lockUnreadBefore(conversationId, counted, m.getCreatedAt());
+            if (!unread.isEmpty()) {
+                participants.decrementUnread(unread.stream().map(ConversationParticipant::getId).toList());
+                // Only unmuted members were counted in the cache, as in broadcastMessage.
+                uncountAfterCommit(conversationId, unread.stream()
+                        .filter(p -> !Boolean.TRUE.equals(p.getMuted()))
+                        .map(ConversationParticipant::getUserId)
+                        .toList());
+            }
+        }
+        broadcastMessageMutation(c, m, "MESSAGE_DELETED", "", true, roster, hidden);
     }
 
     @Transactional
@@ -104,38 +175,44 @@ public class ChatDomainService {
         if (m.getSenderId() == null || !m.getSenderId().equals(callerId)) {
             throw ServiceException.forbidden("Not the sender");
         }
-        AesGcm.Enc enc = aes.encrypt(content, AesGcm.aad(conversationId, callerId));
+        AesGcm.Sealed enc = aes.seal(content, AesGcm.aad(conversationId, callerId));
         LocalDateTime editedAt = LocalDateTime.now(ZoneOffset.UTC);
-        messages.editMessage(conversationId, messageId, createdAtMillis,
-                enc.cipherB64(), enc.ivB64(), editedAt);
-        m.setContentCipherB64(enc.cipherB64());
-        m.setContentIvB64(enc.ivB64());
+        messages.editMessage(m, enc.cipher(), enc.iv(), editedAt);
+        m.setContentCipher(enc.cipher());
+        m.setContentIv(enc.iv());
         m.setEditedAt(editedAt);
         com.serdar.proto.chat.ChatMessage proto = toProtoMessage(m, content);
-        broadcastMessageMutation(c, m, "MESSAGE_EDITED", content, false);
+        ConversationRoster roster = rosters.get(conversationId);
+        broadcastMessageMutation(c, m, "MESSAGE_EDITED", content, false, roster, hiddenFrom(c, roster, callerId));
         return proto;
     }
 
     public void notifyTyping(long conversationId, long userId) {
+        // Membership comes from the roster cache; a deleted conversation has no active members.
+        ConversationRoster roster = rosters.get(conversationId);
+        if (!roster.contains(userId)) {
+            throw ServiceException.forbidden("Not a participant");
+        }
+        if (!typing.tryEmit(conversationId, userId)) {
+            return;
+        }
         if (authClient.isFrozen(userId)) {
             throw ServiceException.forbidden("Account frozen");
         }
-        Conversation c = conversations.findByIdAndDeletedAtIsNull(conversationId)
-                .orElseThrow(() -> ServiceException.notFound("Conversation not found"));
-        assertActiveMember(conversationId, userId);
         ChatEvent evt = ChatEvent.newBuilder()
                 .setType("TYPING")
                 .setConversationId(conversationId)
                 .setSubjectUserId(userId)
                 .build();
-        for (ConversationParticipant p : participants.findByConversationIdAndDeletedAtIsNull(c.getId())) {
-            if (p.getUserId() != userId) {
-                broker.sendTo(p.getUserId(), evt);
-            }
+        List<Long> others = new ArrayList<>(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            if (roster.userId(i) != userId) others.add(roster.userId(i));
         }
+        broker.sendTo(others, evt);
     }
 
-    private void broadcastMessageMutation(Conversation c, Message m, String type, String plaintext, boolean deleted) {
+    private void broadcastMessageMutation(Conversation c, Message m, String type, String plaintext, boolean deleted,
+                                          ConversationRoster roster, Set<Long> hidden) {
         com.serdar.proto.chat.ChatMessage.Builder msgBuilder = com.serdar.proto.chat.ChatMessage.newBuilder()
                 .setId(m.getId())
                 .setConversationId(m.getConversationId())
@@ -147,85 +224,76 @@ public class ChatDomainService {
             msgBuilder.setEditedAtMillis(m.getEditedAt().toInstant(ZoneOffset.UTC).toEpochMilli());
         }
         com.serdar.proto.chat.ChatMessage msg = msgBuilder.build();
-        boolean group = c.getType() == Conversation.Type.MESSAGING_GROUP;
-        for (ConversationParticipant p : participants.findByConversationIdAndDeletedAtIsNull(c.getId())) {
-            if (group && shouldHideGroupMessageFrom(p.getUserId(), m.getSenderId())) {
-                continue;
-            }
-            broker.sendTo(p.getUserId(),
-                    ChatEvent.newBuilder()
-                            .setType(type)
-                            .setConversationId(c.getId())
-                            .setMessage(msg)
-                            .build());
+        recent.replace(msg);
+        ChatEvent event = ChatEvent.newBuilder()
+                .setType(type)
+                .setConversationId(c.getId())
+                .setMessage(msg)
+                .build();
+        List<Long> recipients = new ArrayList<>(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            if (!hidden.contains(roster.userId(i))) recipients.add(roster.userId(i));
         }
+        broker.sendTo(recipients, event);
+        inboxes.messageChanged(m, m.getSenderId(), recipients);
     }
 
     private void broadcastMessage(Conversation c, Message m, String plaintext) {
         com.serdar.proto.chat.ChatMessage msg = toProtoMessage(m, plaintext);
-        boolean group = c.getType() == Conversation.Type.MESSAGING_GROUP;
-        for (ConversationParticipant p : participants.findByConversationIdAndDeletedAtIsNull(c.getId())) {
-            if (group && shouldHideGroupMessageFrom(p.getUserId(), m.getSenderId())) {
+        recent.append(msg);
+        ConversationRoster roster = rosters.get(c.getId());
+        Set<Long> hidden = m.getSenderId() == null ? Set.of() : hiddenFrom(c, roster, m.getSenderId());
+        List<Long> recipients = new ArrayList<>(roster.size());
+        List<Long> counted = new ArrayList<>(roster.size());
+        List<Long> notified = new ArrayList<>(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            long userId = roster.userId(i);
+            if (hidden.contains(userId)) {
                 continue;
             }
-            broker.sendTo(p.getUserId(),
+            recipients.add(userId);
+            // System messages (senderId <= 0) never affect unread badges.
+            if (userId != m.getSenderId() && m.getSenderId() != null && m.getSenderId() > 0) {
+                counted.add(userId);
+                if (!roster.muted(i)) notified.add(userId);
+            }
+        }
+        broker.sendTo(recipients, ChatEvent.newBuilder()
+                .setType("MESSAGE")
+                .setConversationId(c.getId())
+                .setMessage(msg)
+                .build());
+        inboxes.messageStored(m, recipients);
+        if (counted.isEmpty()) {
+            return;
+        }
+        // Muted members still count, so unmuting shows what arrived meanwhile.
+        participants.incrementUnread(c.getId(), counted);
+        Map<Long, Integer> cached = unreadCache.increment(c.getId(), notified);
+        for (long userId : notified) {
+            Integer hit = cached.get(userId);
+            int unread = hit != null ? hit : unreadCache.getConversationUnread(userId, c.getId(),
+                    () -> participants.findByConversationIdAndUserIdAndDeletedAtIsNull(c.getId(), userId)
+                            .map(ChatDomainService::storedUnread)
+                            .orElse(0));
+            broker.sendTo(userId,
                     ChatEvent.newBuilder()
-                            .setType("MESSAGE")
+                            .setType("UNREAD_COUNT_UPDATE")
                             .setConversationId(c.getId())
-                            .setMessage(msg)
+                            .setUnreadCount(unread)
                             .build());
-            // unread count bump for everyone other than the sender, unless they muted the chat.
-            // System messages (senderId <= 0) never affect unread badges.
-            if (p.getUserId() != m.getSenderId()
-                    && !Boolean.TRUE.equals(p.getMuted())
-                    && m.getSenderId() != null
-                    && m.getSenderId() > 0) {
-                if (!group || !shouldHideGroupMessageFrom(p.getUserId(), m.getSenderId())) {
-                    unreadCache.increment(p.getUserId(), c.getId());
-                }
-                int unread = unreadCache.getConversationUnread(
-                        p.getUserId(), c.getId(),
-                        () -> (int) countVisibleUnread(c, p.getUserId(), p.getLastReadAt()));
-                broker.sendTo(p.getUserId(),
-                        ChatEvent.newBuilder()
-                                .setType("UNREAD_COUNT_UPDATE")
-                                .setConversationId(c.getId())
-                                .setUnreadCount(unread)
-                                .build());
-            }
         }
     }
 
-    public List<com.serdar.proto.chat.ChatMessage> getLatest(long conversationId, long callerId, int limit) {
+    public MessageWindow getLatest(long conversationId, long callerId, String cursor, int limit) {
         assertActiveMember(conversationId, callerId);
         Conversation c = conversations.findByIdAndDeletedAtIsNull(conversationId)
                 .orElseThrow(() -> ServiceException.notFound("Conversation not found"));
         int capped = Math.max(1, Math.min(limit, 200));
-        if (!isMessagingGroup(c)) {
-            Page<Message> desc = messages.findByConversationIdOrderByCreatedAtDesc(
-                    conversationId, PageRequest.of(0, capped));
-            List<Message> asc = new ArrayList<>(desc.getContent());
-            Collections.reverse(asc);
-            return asc.stream().map(this::decrypt).toList();
-        }
-        Set<Long> hidden = userClient.blockedByMeIds(callerId);
-        List<com.serdar.proto.chat.ChatMessage> result = new ArrayList<>();
-        int dbPage = 0;
-        int chunk = Math.max(capped, 50);
-        while (result.size() < capped) {
-            Page<Message> desc = messages.findByConversationIdOrderByCreatedAtDesc(
-                    conversationId, PageRequest.of(dbPage++, chunk));
-            if (desc.isEmpty()) break;
-            List<Message> asc = new ArrayList<>(desc.getContent());
-            Collections.reverse(asc);
-            for (Message m : asc) {
-                if (hidden.contains(m.getSenderId())) continue;
-                result.add(decrypt(m));
-                if (result.size() >= capped) break;
-            }
-            if (desc.isLast()) break;
-        }
-        return result;
+        MessageWindow newestFirst = windowBefore(c, callerId, cursor, capped);
+        List<com.serdar.proto.chat.ChatMessage> asc = new ArrayList<>(newestFirst.messages());
+        Collections.reverse(asc);
+        return new MessageWindow(asc, newestFirst.nextCursor());
     }
 
     public Page<com.serdar.proto.chat.ChatMessage> getPage(long conversationId, long callerId, int page, int size) {
@@ -235,16 +303,65 @@ public class ChatDomainService {
         int cappedSize = Math.max(1, Math.min(size, 200));
         Pageable p = PageRequest.of(Math.max(0, page), cappedSize);
         if (!isMessagingGroup(c)) {
-            return messages.findByConversationIdOrderByCreatedAtDesc(conversationId, p).map(this::decrypt);
+            Page<Message> raw = messages.findByConversationIdOrderByCreatedAtDesc(conversationId, p);
+            return new org.springframework.data.domain.PageImpl<>(decryptAll(raw.getContent()), p, raw.getTotalElements());
         }
         return getVisibleMessagePage(conversationId, callerId, page, cappedSize, p);
     }
 
+    /** Keyset variant of {@link #getPage}: newest-first, no COUNT(*), constant cost per page. */
+    public MessageWindow getPageBefore(long conversationId, long callerId, String cursor, int size) {
+        assertActiveMember(conversationId, callerId);
+        Conversation c = conversations.findByIdAndDeletedAtIsNull(conversationId)
+                .orElseThrow(() -> ServiceException.notFound("Conversation not found"));
+        int cappedSize = Math.max(1, Math.min(size, 200));
+        return windowBefore(c, callerId, cursor, cappedSize);
+    }
+
+    /**
+     * Newest-first page before {@code cursor}. The first page is served from
+     * the hot tier when it is current; otherwise it is read from Cassandra
+     * and, if the caller hides nobody, used to seed the hot tier. Pages larger
+     * than the hot tier keeps per conversation bypass it entirely.
+     */
+    private MessageWindow windowBefore(Conversation c, long callerId, String cursor, int size) {
+        Set<Long> hidden = isMessagingGroup(c) ? userClient.blockedByMeIds(callerId) : Set.of();
+        MessageCursor before = MessageCursor.decode(cursor);
+        if (before == null && size <= RecentMessageCache.PER_CONVERSATION) {
+            RecentMessageCache.Window hot = recent.latest(c.getId(), hidden, size);
+            if (hot != null) {
+                return new MessageWindow(hot.newestFirst(), hot.hasMore() ? cursorAfter(hot.newestFirst()) : null);
+            }
+            if (hidden.isEmpty()) {
+                long version = recent.currentVersion(c.getId());
+                KeysetSlice slice = visibleSliceBefore(c, hidden, null, RecentMessageCache.PER_CONVERSATION);
+                List<com.serdar.proto.chat.ChatMessage> decrypted = decryptAll(slice.messages());
+                recent.seed(c.getId(), version, decrypted, slice.nextCursor() == null);
+                if (decrypted.size() <= size) {
+                    return new MessageWindow(decrypted, slice.nextCursor());
+                }
+                List<com.serdar.proto.chat.ChatMessage> page = decrypted.subList(0, size);
+                return new MessageWindow(page, cursorAfter(page));
+            }
+        }
+        KeysetSlice slice = visibleSliceBefore(c, hidden, before, size);
+        return new MessageWindow(decryptAll(slice.messages()), slice.nextCursor());
+    }
+
+    private static String cursorAfter(List<com.serdar.proto.chat.ChatMessage> newestFirst) {
+        com.serdar.proto.chat.ChatMessage last = newestFirst.get(newestFirst.size() - 1);
+        return new MessageCursor(last.getCreatedAtMillis(), last.getId()).encode();
+    }
+
+    private List<com.serdar.proto.chat.ChatMessage> decryptAll(List<Message> page) {
+        return decryptor.map(page, this::decrypt);
+    }
+
     private com.serdar.proto.chat.ChatMessage decrypt(Message m) {
         if (m.isDeleted()) {
             return toProtoMessage(m, "");
         }
-        String plain = aes.decrypt(m.getContentIvB64(), m.getContentCipherB64(),
+        String plain = aes.open(m.getContentIv(), m.getContentCipher(),
                 AesGcm.aad(m.getConversationId(), m.getSenderId()));
         return toProtoMessage(m, plain);
     }
@@ -257,25 +374,24 @@ public class ChatDomainService {
                 .orElseThrow(() -> ServiceException.notFound("Conversation not found"));
         ConversationParticipant me = participants.findByConversationIdAndUserIdAndDeletedAtIsNull(conversationId, readerId)
                 .orElseThrow(() -> ServiceException.forbidden("Not a participant"));
+        // Muted conversations are not part of the total, so clearing one takes nothing off it.
+        int cleared = Boolean.TRUE.equals(me.getMuted()) ? 0 : storedUnread(me);
         LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
-        me.setLastReadAt(now);
-        participants.saveAndFlush(me);
+        // lastReadAt is written behind and the READ receipt sent (or coalesced) by the buffer;
+        // the counter reset stays synchronous so it cannot swallow a later increment.
+        readPositions.accept(conversationId, readerId, me.getId(), now);
+        if (!Integer.valueOf(0).equals(me.getUnreadCount())) {
+            participants.resetUnread(me.getId());
+        }
+        seenMessages.invalidate(conversationId);
 
-        unreadCache.clearConversation(readerId, conversationId);
-        int totalUnread = computeTotalUnreadFromStore(readerId);
+        int totalUnread = unreadCache.resetConversation(readerId, conversationId, cleared);
+        if (totalUnread < 0) {
+            totalUnread = computeTotalUnreadFromStore(readerId);
+        }
 
         long unread = 0;
 
-        ChatEvent readEvt = ChatEvent.newBuilder()
-                .setType("READ")
-                .setConversationId(conversationId)
-                .setReaderId(readerId)
-                .setLastReadAtMillis(now.toInstant(ZoneOffset.UTC).toEpochMilli())
-                .build();
-        // Broadcast READ to every participant, and refresh the reader's own unread widget.
-        for (ConversationParticipant p : participants.findByConversationIdAndDeletedAtIsNull(conversationId)) {
-            broker.sendTo(p.getUserId(), readEvt);
-        }
         broker.sendTo(readerId,
                 ChatEvent.newBuilder()
                         .setType("UNREAD_COUNT_UPDATE")
@@ -291,12 +407,13 @@ public class ChatDomainService {
         return unreadCache.getTotalUnread(userId, () -> computeTotalUnreadFromStore(userId));
     }
 
+    /** Full recompute over the user's inbox; only for a cold cache, hence the counter. */
     private int computeTotalUnreadFromStore(long userId) {
+        meters.counter("chat.unread.total.recomputed").increment();
         int total = 0;
-        Set<Long> hidden = userClient.blockedByMeIds(userId);
         for (ConversationParticipant p : participants.findByUserIdAndDeletedAtIsNull(userId)) {
             if (Boolean.TRUE.equals(p.getMuted())) continue;
-            total += visibleUnreadForParticipant(p, userId, hidden);
+            total += storedUnread(p);
         }
         unreadCache.warmTotal(userId, total);
         return total;
@@ -305,18 +422,22 @@ public class ChatDomainService {
     public UnreadCounts unreadCounts(long userId) {
         int total = 0;
         Map<Long, Integer> per = new HashMap<>();
-        Set<Long> hidden = userClient.blockedByMeIds(userId);
+        Map<Long, Integer> cached = unreadCache.conversationUnreads(userId);
+        Map<Long, Integer> missing = new HashMap<>();
         for (ConversationParticipant p : participants.findByUserIdAndDeletedAtIsNull(userId)) {
             if (Boolean.TRUE.equals(p.getMuted())) {
                 per.put(p.getConversationId(), 0);
                 continue;
             }
-            int n = unreadCache.getConversationUnread(
-                    userId, p.getConversationId(),
-                    () -> visibleUnreadForParticipant(p, userId, hidden));
+            Integer n = cached.get(p.getConversationId());
+            if (n == null) {
+                n = storedUnread(p);
+                missing.put(p.getConversationId(), n);
+            }
             total += n;
             per.put(p.getConversationId(), n);
         }
+        unreadCache.putConversationUnreads(userId, missing);
         unreadCache.warmTotal(userId, total);
         return new UnreadCounts(total, per);
     }
@@ -332,15 +453,20 @@ public class ChatDomainService {
         ConversationParticipant me     = participants.findByConversationIdAndUserId(conversationId, callerId).orElse(null);
         ConversationParticipant friend = participants.findByConversationIdAndUserId(conversationId, friendId).orElse(null);
 
+        LocalDateTime myReadAt = me == null ? null : readPositions.lastReadAt(conversationId, callerId, me.getLastReadAt());
+        LocalDateTime friendReadAt = friend == null ? null
+                : readPositions.lastReadAt(conversationId, friendId, friend.getLastReadAt());
         Long seenMessageId = null;
-        if (friend != null && friend.getLastReadAt() != null) {
-            var hits = messages.lastFromSenderBefore(conversationId, callerId, friend.getLastReadAt(),
-                    PageRequest.of(0, 1));
-            if (!hits.isEmpty()) seenMessageId = hits.get(0).getId();
+        if (friendReadAt != null) {
+            seenMessageId = seenMessages.get(conversationId, callerId, friendReadAt, () -> {
+                var hits = messages.lastFromSenderBefore(conversationId, callerId, friendReadAt,
+                        PageRequest.of(0, 1));
+                return hits.isEmpty() ? null : hits.get(0).getId();
+            });
         }
         return new ReadState(
-                me == null ? null : me.getLastReadAt(),
-                friend == null ? null : friend.getLastReadAt(),
+                myReadAt,
+                friendReadAt,
                 seenMessageId, friendId, callerId);
     }
 
@@ -349,17 +475,111 @@ public class ChatDomainService {
     }
 
     public List<Conversation> myConversations(long userId) {
-        return participants.findByUserIdAndDeletedAtIsNull(userId).stream()
+        List<Conversation> mine = participants.findByUserIdAndDeletedAtIsNull(userId).stream()
                 .map(p -> conversations.findByIdAndDeletedAtIsNull(p.getConversationId()).orElse(null))
                 .filter(Objects::nonNull)
-                .filter(c -> !shouldHideDirectConversation(c, userId))
                 .toList();
+        List<Long> directPeers = new ArrayList<>();
+        for (Conversation c : mine) {
+            if (c.getType() == Conversation.Type.DIRECT) directPeers.add(directPeer(c, userId));
+        }
+        Set<Long> frozenPeers = authClient.frozenAmong(directPeers);
+        if (frozenPeers.isEmpty()) return mine;
+        return mine.stream()
+                .filter(c -> c.getType() != Conversation.Type.DIRECT || !frozenPeers.contains(directPeer(c, userId)))
+                .toList();
+    }
+
+    private static long directPeer(Conversation c, long userId) {
+        return c.getUserAId().equals(userId) ? c.getUserBId() : c.getUserAId();
+    }
+
+    /**
+     * One page of the caller's conversation list, pinned first and then by
+     * last activity, with the newest visible message and unread count of each.
+     * Served from the {@link InboxProjection} plus one conversation lookup for
+     * the page and the cached unread hash; direct chats with a frozen peer are
+     * left out as in {@link #myConversations}.
+     */
+    public Inbox inbox(long userId, int page, int size) {
+        int cappedSize = Math.max(1, Math.min(size, 100));
+        List<InboxProjection.Entry> entries = inboxes.read(userId).orElseGet(() -> rebuildInbox(userId));
+        List<Long> directPeers = new ArrayList<>();
+        for (InboxProjection.Entry e : entries) {
+            if (e.peerId() > 0) directPeers.add(e.peerId());
+        }
+        Set<Long> frozenPeers = authClient.frozenAmong(directPeers);
+        List<InboxProjection.Entry> visible = entries.stream()
+                .filter(e -> e.peerId() <= 0 || !frozenPeers.contains(e.peerId()))
+                .sorted(INBOX_ORDER)
+                .toList();
+        int from = (int) Math.min((long) Math.max(0, page) * cappedSize, visible.size());
+        int to = Math.min(from + cappedSize, visible.size());
+        List<InboxProjection.Entry> slice = visible.subList(from, to);
+
+        Map<Long, Conversation> byId = new HashMap<>();
+        for (Conversation c : conversations.findAllById(slice.stream().map(InboxProjection.Entry::conversationId).toList())) {
+            if (c.getDeletedAt() == null) byId.put(c.getId(), c);
+        }
+        Map<Long, Integer> cached = unreadCache.conversationUnreads(userId);
+        Map<Long, Integer> unread = slice.stream().anyMatch(e -> !e.muted() && !cached.containsKey(e.conversationId()))
+                ? unreadCounts(userId).perConversation()
+                : cached;
+        List<Message> last = slice.stream()
+                .map(InboxProjection.Entry::lastMessage)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<Long, com.serdar.proto.chat.ChatMessage> previews = new HashMap<>();
+        for (com.serdar.proto.chat.ChatMessage m : decryptAll(last)) {
+            previews.put(m.getConversationId(), m);
+        }
+
+        List<InboxEntry> out = new ArrayList<>(slice.size());
+        for (InboxProjection.Entry e : slice) {
+            Conversation c = byId.get(e.conversationId());
+            if (c == null) {
+                // Gone from MySQL without the projection hearing about it.
+                inboxes.left(userId, e.conversationId());
+                continue;
+            }
+            out.add(new InboxEntry(c, previews.get(e.conversationId()),
+                    e.muted() ? 0 : unread.getOrDefault(e.conversationId(), 0),
+                    e.muted(), e.pinned(), e.lastActivityAt()));
+        }
+        return new Inbox(out, visible.size(), to < visible.size());
     }
 
-    private boolean shouldHideDirectConversation(Conversation c, long userId) {
-        if (c.getType() != Conversation.Type.DIRECT) return false;
-        long other = c.getUserAId().equals(userId) ? c.getUserBId() : c.getUserAId();
-        return authClient.isFrozen(other);
+    private static final Comparator<InboxProjection.Entry> INBOX_ORDER = Comparator
+            .comparing(InboxProjection.Entry::pinned).reversed()
+            .thenComparing(InboxProjection.Entry::lastActivityAt, Comparator.reverseOrder())
+            .thenComparing(InboxProjection.Entry::conversationId, Comparator.reverseOrder());
+
+    /** First read of a user's inbox: fill the projection from MySQL and each conversation's newest visible message. */
+    private List<InboxProjection.Entry> rebuildInbox(long userId) {
+        meters.counter("chat.inbox.rebuilt").increment();
+        Instant readAt = Instant.now();
+        List<ConversationParticipant> mine = participants.findByUserIdAndDeletedAtIsNull(userId);
+        Map<Long, Conversation> byId = new HashMap<>();
+        for (Conversation c : conversations.findAllById(mine.stream().map(ConversationParticipant::getConversationId).toList())) {
+            if (c.getDeletedAt() == null) byId.put(c.getId(), c);
+        }
+        Set<Long> hidden = byId.values().stream().anyMatch(this::isMessagingGroup)
+                ? userClient.blockedByMeIds(userId) : Set.of();
+        List<InboxProjection.Entry> entries = new ArrayList<>(mine.size());
+        for (ConversationParticipant p : mine) {
+            Conversation c = byId.get(p.getConversationId());
+            if (c == null) continue;
+            List<Message> newest = visibleSliceBefore(c, isMessagingGroup(c) ? hidden : Set.of(), null, 1).messages();
+            entries.add(new InboxProjection.Entry(
+                    c.getId(),
+                    c.getType() == Conversation.Type.DIRECT ? directPeer(c, userId) : 0,
+                    Boolean.TRUE.equals(p.getMuted()),
+                    Boolean.TRUE.equals(p.getPinned()),
+                    p.getJoinedAt(),
+                    newest.isEmpty() ? null : newest.get(0)));
+        }
+        inboxes.rebuild(userId, entries, readAt);
+        return entries;
     }
 
     @Transactional
@@ -373,11 +593,12 @@ public class ChatDomainService {
                 continue;
             }
 
-            messages.deleteBySenderInConversation(c.getId(), userId);
             unreadCache.clearConversation(userId, c.getId());
+            rosters.invalidateAfterCommit(c.getId());
 
             if (c.getType() == Conversation.Type.DIRECT) {
-                messages.deleteByConversationId(c.getId());
+                inboxes.left(directPeer(c, userId), c.getId());
+                purges.enqueueConversation(c.getId(), participantUserIds(c.getId()));
                 participants.deleteByConversationId(c.getId());
                 conversations.delete(c);
                 continue;
@@ -389,10 +610,13 @@ public class ChatDomainService {
 
             List<ConversationParticipant> remaining = participants.findByConversationIdAndDeletedAtIsNull(c.getId());
             if (remaining.isEmpty()) {
-                messages.deleteByConversationId(c.getId());
+                purges.enqueueConversation(c.getId(), participantUserIds(c.getId()));
                 participants.deleteByConversationId(c.getId());
                 conversations.delete(c);
-            } else if (adminLeft && remaining.stream().noneMatch(p -> isOwner(c, p))) {
+                continue;
+            }
+            purges.enqueueSender(c.getId(), userId);
+            if (adminLeft && remaining.stream().noneMatch(p -> isOwner(c, p))) {
                 ConversationParticipant nextAdmin = nextAdminCandidate(remaining);
                 grantAdmin(nextAdmin);
                 participants.save(nextAdmin);
@@ -400,6 +624,7 @@ public class ChatDomainService {
         }
 
         unreadCache.setTotalUnread(userId, 0);
+        inboxes.dropUser(userId);
     }
 
     public MessagingGroupDetail messagingGroupDetail(long conversationId, long requesterId) {
@@ -464,6 +689,8 @@ public class ChatDomainService {
                 throw ServiceException.forbidden("Cannot mute notifications for another member");
             }
             target.setMuted(muted);
+            unreadCache.invalidate(targetUserId, conversationId);
+            inboxes.muted(targetUserId, conversationId, muted);
         }
 
         if (updatePermissions) {
@@ -478,10 +705,9 @@ public class ChatDomainService {
         }
 
         participants.save(target);
+        rosters.invalidateAfterCommit(conversationId);
         if (updateMuted) {
-            int unread = Boolean.TRUE.equals(target.getMuted())
-                    ? 0
-                    : (int) countVisibleUnread(c, targetUserId, target.getLastReadAt());
+            int unread = Boolean.TRUE.equals(target.getMuted()) ? 0 : storedUnread(target);
             notifyUnreadAfterCommit(targetUserId, conversationId, unread, totalUnreadFor(targetUserId));
         }
         notifyMessagingGroupEventAfterCommit("MESSAGING_GROUP_UPDATED", conversationId, activeUserIds(conversationId));
@@ -503,6 +729,8 @@ public class ChatDomainService {
 
         target.setDeletedAt(LocalDateTime.now(ZoneOffset.UTC));
         participants.save(target);
+        rosters.invalidateAfterCommit(conversationId);
+        inboxes.left(targetUserId, conversationId);
         saveSystemMessage(c, userClient.nickname(targetUserId) + " was removed from the group");
 
         Set<Long> audience = activeUserIds(conversationId);
@@ -520,11 +748,13 @@ public class ChatDomainService {
         boolean adminLeft = isOwner(c, requester);
         requester.setDeletedAt(LocalDateTime.now(ZoneOffset.UTC));
         participants.save(requester);
+        rosters.invalidateAfterCommit(conversationId);
+        inboxes.left(requesterId, conversationId);
         saveSystemMessage(c, userClient.nickname(requesterId) + " left the group");
 
         List<ConversationParticipant> remaining = participants.findByConversationIdAndDeletedAtIsNull(conversationId);
         if (remaining.isEmpty()) {
-            messages.deleteByConversationId(conversationId);
+            purges.enqueueConversation(conversationId, participantUserIds(conversationId));
             participants.deleteByConversationId(conversationId);
             conversations.delete(c);
             notifyMessagingGroupEventAfterCommit("MESSAGING_GROUP_DELETED", conversationId, Set.of(requesterId));
@@ -552,12 +782,14 @@ public class ChatDomainService {
         ConversationParticipant requester = activeParticipant(conversationId, requesterId);
         if (!isOwner(c, requester)) throw ServiceException.forbidden("Only a group admin can delete this group");
         Set<Long> audience = activeUserIds(conversationId);
-        messages.deleteByConversationId(conversationId);
+        rosters.invalidateAfterCommit(conversationId);
+        purges.enqueueConversation(conversationId, participantUserIds(conversationId));
         participants.deleteByConversationId(conversationId);
         conversations.delete(c);
         audience.forEach(userId -> {
             notifyUnreadAfterCommit(userId, conversationId, 0, totalUnreadFor(userId));
             unreadCache.clearConversation(userId, conversationId);
+            inboxes.left(userId, conversationId);
         });
         notifyMessagingGroupEventAfterCommit("MESSAGING_GROUP_DELETED", conversationId, audience);
     }
@@ -566,8 +798,11 @@ public class ChatDomainService {
 
     public ChatEvent presenceSnapshotFor(long userId) {
         ChatEvent.Builder b = ChatEvent.newBuilder().setType("PRESENCE_SNAPSHOT");
-        for (long id : presenceAudienceFor(userId)) {
-            boolean online = broker.isOnline(id) && !authClient.isFrozen(id);
+        Set<Long> audience = presenceAudienceFor(userId);
+        Set<Long> frozen = authClient.frozenAmong(audience);
+        Set<Long> streaming = broker.onlineAmong(audience);
+        for (long id : audience) {
+            boolean online = streaming.contains(id) && !frozen.contains(id);
             b.addPresenceSnapshot(PresenceEntry.newBuilder().setUserId(id).setOnline(online));
         }
         return b.build();
@@ -604,6 +839,7 @@ public class ChatDomainService {
             throw ServiceException.forbidden("Blocked");
 
         Optional<ConversationParticipant> existing = participants.findByConversationIdAndUserId(conversationId, newUserId);
+        ConversationParticipant joined;
         if (existing.isPresent()) {
             ConversationParticipant p = existing.get();
             if (p.getDeletedAt() == null) return c;
@@ -611,11 +847,12 @@ public class ChatDomainService {
             p.setDeletedAt(null);
             p.setMuted(false);
             p.setJoinedAt(LocalDateTime.now(ZoneOffset.UTC));
-            p.setLastReadAt(LocalDateTime.now(ZoneOffset.UTC));
-            participants.save(p);
+            joined = participants.save(p);
+            participants.advanceLastReadAt(p.getId(), p.getJoinedAt());
+            participants.resetUnread(p.getId());
         } else {
             ensureMessagingGroupHasRoom(conversationId);
-            participants.save(ConversationParticipant.builder()
+            joined = participants.save(ConversationParticipant.builder()
                     .conversationId(conversationId)
                     .userId(newUserId)
                     .joinedAt(LocalDateTime.now(ZoneOffset.UTC))
@@ -623,7 +860,9 @@ public class ChatDomainService {
                     .role("MEMBER")
                     .build());
         }
+        inboxes.joined(newUserId, conversationId, 0, false, Boolean.TRUE.equals(joined.getPinned()), joined.getJoinedAt());
 
+        rosters.invalidateAfterCommit(conversationId, List.of(newUserId));
         saveSystemMessage(c, userClient.nickname(requesterId) + " added " + userClient.nickname(newUserId) + " to the group");
         notifyMessagingGroupEventAfterCommit("MESSAGING_GROUP_ADDED", conversationId, activeUserIds(conversationId));
         return c;
@@ -638,23 +877,27 @@ public class ChatDomainService {
                 .setSubjectUserId(userId)
                 .setOnline(online)
                 .build();
-        for (long id : presenceAudienceFor(userId)) broker.sendTo(id, evt);
+        broker.sendTo(presenceAudienceFor(userId), evt);
     }
 
     // --- helpers ------------------------------------------------------------
 
     private void assertActiveMember(long conversationId, long userId) {
-        activeParticipant(conversationId, userId);
+        if (!rosters.get(conversationId).contains(userId)) {
+            throw ServiceException.forbidden("Not a participant");
+        }
     }
 
     /** Users whose online status this viewer cares about: friends + messaging-group co-members. */
     private Set<Long> presenceAudienceFor(long userId) {
-        Set<Long> audience = new LinkedHashSet<>(userClient.friendIds(userId));
-        for (ConversationParticipant mine : participants.findByUserIdAndDeletedAtIsNull(userId)) {
-            Conversation c = conversations.findByIdAndDeletedAtIsNull(mine.getConversationId()).orElse(null);
-            if (c == null || c.getType() != Conversation.Type.MESSAGING_GROUP) continue;
-            for (ConversationParticipant member : participants.findByConversationIdAndDeletedAtIsNull(c.getId())) {
-                if (!member.getUserId().equals(userId)) audience.add(member.getUserId());
+        PresenceAudienceIndex.Audience indexed = audiences.get(userId);
+        Set<Long> audience = new LinkedHashSet<>(indexed.friendIds());
+        for (long conversationId : indexed.groupIds()) {
+            ConversationRoster roster = rosters.get(conversationId);
+            // Left or deleted since the entry was built.
+            if (!roster.contains(userId)) continue;
+            for (int i = 0; i < roster.size(); i++) {
+                if (roster.userId(i) != userId) audience.add(roster.userId(i));
             }
         }
         return audience;
@@ -674,58 +917,73 @@ public class ChatDomainService {
         return c.getType() == Conversation.Type.MESSAGING_GROUP;
     }
 
-    /** Hide only messages from users the viewer blocked — not the reverse. */
-    private boolean shouldHideGroupMessageFrom(long viewerId, long senderId) {
-        if (senderId <= 0 || viewerId == senderId) return false;
-        return userClient.blockedByMe(viewerId, senderId);
-    }
-
-    private long countVisibleUnread(Conversation c, long readerId, LocalDateTime lastRead) {
-        if (!isMessagingGroup(c)) {
-            return messages.countUnreadFor(c.getId(), readerId, lastRead);
+    /**
+     * Group members who blocked {@code senderId} and so don't see its messages —
+     * not the reverse. One user-service call per message, not per recipient.
+     */
+    private Set<Long> hiddenFrom(Conversation c, ConversationRoster roster, long senderId) {
+        if (!isMessagingGroup(c) || senderId <= 0) return Set.of();
+        List<Long> viewers = new ArrayList<>(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            if (roster.userId(i) != senderId) viewers.add(roster.userId(i));
         }
-        return countVisibleUnread(c.getId(), readerId, lastRead, userClient.blockedByMeIds(readerId));
+        return userClient.viewersBlocking(senderId, viewers);
     }
 
-    private long countVisibleUnread(long conversationId, long readerId, LocalDateTime lastRead, Set<Long> hidden) {
-        if (hidden.isEmpty()) {
-            return messages.countUnreadFor(conversationId, readerId, lastRead);
-        }
-        return messages.findUnreadMessages(conversationId, readerId, lastRead).stream()
-                .filter(m -> !hidden.contains(m.getSenderId()))
-                .count();
+    /** O(1): the counter maintained by broadcastMessage/markRead; a not-yet-repaired row reads as 0. */
+    private static int storedUnread(ConversationParticipant p) {
+        Integer n = p.getUnreadCount();
+        return n == null ? 0 : Math.max(0, n);
     }
 
-    private int visibleUnreadForParticipant(ConversationParticipant p, long userId, Set<Long> hidden) {
-        Conversation c = conversations.findByIdAndDeletedAtIsNull(p.getConversationId()).orElse(null);
-        if (c == null || !isMessagingGroup(c)) {
-            return (int) messages.countUnreadFor(p.getConversationId(), userId, p.getLastReadAt());
+    /**
+     * Walk the history newest-first from {@code before}, skipping senders the
+     * caller blocked in messaging groups, until {@code size} visible messages
+     * are collected. One extra row is read to tell whether anything older is
+     * left; the cursor points at the last returned message.
+     */
+    private KeysetSlice visibleSliceBefore(Conversation c, Set<Long> hidden, MessageCursor before, int size) {
+        int chunk = hidden.isEmpty() ? size + 1 : Math.max(size + 1, 50);
+        List<Message> visible = new ArrayList<>(size + 1);
+        MessageCursor position = before;
+        while (visible.size() <= size) {
+            List<Message> raw = messages.findPageBefore(c.getId(), position, chunk);
+            for (Message m : raw) {
+                position = MessageCursor.of(m);
+                if (hidden.contains(m.getSenderId())) continue;
+                visible.add(m);
+                if (visible.size() > size) break;
+            }
+            if (raw.size() < chunk) break;
+        }
+        if (visible.size() <= size) {
+            return new KeysetSlice(visible, null);
         }
-        return (int) countVisibleUnread(p.getConversationId(), userId, p.getLastReadAt(), hidden);
+        List<Message> page = visible.subList(0, size);
+        return new KeysetSlice(page, MessageCursor.of(page.get(size - 1)).encode());
     }
 
     private Page<com.serdar.proto.chat.ChatMessage> getVisibleMessagePage(
             long conversationId, long callerId, int page, int size, Pageable pageable) {
         Set<Long> hidden = userClient.blockedByMeIds(callerId);
         int toSkip = page * size;
-        List<com.serdar.proto.chat.ChatMessage> batch = new ArrayList<>();
-        int dbPage = 0;
+        List<Message> batch = new ArrayList<>();
+        MessageCursor position = null;
         int visibleSkipped = 0;
         int chunk = Math.max(size, 50);
         while (batch.size() < size) {
-            Page<Message> raw = messages.findByConversationIdOrderByCreatedAtDesc(
-                    conversationId, PageRequest.of(dbPage++, chunk));
-            if (raw.isEmpty()) break;
-            for (Message m : raw.getContent()) {
+            List<Message> raw = messages.findPageBefore(conversationId, position, chunk);
+            for (Message m : raw) {
+                position = MessageCursor.of(m);
                 if (hidden.contains(m.getSenderId())) continue;
                 if (visibleSkipped++ < toSkip) continue;
-                batch.add(decrypt(m));
+                batch.add(m);
                 if (batch.size() >= size) break;
             }
-            if (raw.isLast()) break;
+            if (raw.size() < chunk) break;
         }
         long totalVisible = countVisibleMessages(conversationId, hidden);
-        return new org.springframework.data.domain.PageImpl<>(batch, pageable, totalVisible);
+        return new org.springframework.data.domain.PageImpl<>(decryptAll(batch), pageable, totalVisible);
     }
 
     private long countVisibleMessages(long conversationId, Set<Long> hidden) {
@@ -733,15 +991,15 @@ public class ChatDomainService {
             return messages.countByConversationId(conversationId);
         }
         long total = 0;
-        int dbPage = 0;
+        MessageCursor position = null;
         int chunk = 200;
         while (true) {
-            Page<Message> raw = messages.findByConversationIdOrderByCreatedAtDesc(
-                    conversationId, PageRequest.of(dbPage++, chunk));
-            for (Message m : raw.getContent()) {
+            List<Message> raw = messages.findPageBefore(conversationId, position, chunk);
+            for (Message m : raw) {
+                position = MessageCursor.of(m);
                 if (!hidden.contains(m.getSenderId())) total++;
             }
-            if (raw.isLast()) break;
+            if (raw.size() < chunk) break;
         }
         return total;
     }
@@ -774,6 +1032,13 @@ public class ChatDomainService {
         return ids;
     }
 
+    /** Everyone who was ever in the conversation, including members who left. */
+    private List<Long> participantUserIds(long conversationId) {
+        return participants.findByConversationId(conversationId).stream()
+                .map(ConversationParticipant::getUserId)
+                .toList();
+    }
+
     private boolean isOwner(Conversation c, ConversationParticipant p) {
         return Objects.equals(c.getCreatedById(), p.getUserId()) || "ADMIN".equalsIgnoreCase(p.getRole());
     }
@@ -878,19 +1143,27 @@ public class ChatDomainService {
     }
 
     private Message saveSystemMessage(Conversation c, String plaintext) {
-        AesGcm.Enc enc = aes.encrypt(plaintext, AesGcm.aad(c.getId(), 0));
+        AesGcm.Sealed enc = aes.seal(plaintext, AesGcm.aad(c.getId(), 0));
+        long id = MessageIdGenerator.nextId();
         Message m = messages.save(Message.builder()
-                .id(MessageIdGenerator.nextId())
+                .id(id)
                 .conversationId(c.getId())
                 .senderId(0L)
-                .contentCipherB64(enc.cipherB64())
-                .contentIvB64(enc.ivB64())
-                .createdAt(LocalDateTime.now(ZoneOffset.UTC))
-                .build());
+                .contentCipher(enc.cipher())
+                .contentIv(enc.iv())
+                .createdAt(createdAtOf(id))
+                .build())
+                .toCompletableFuture().join();
         broadcastMessage(c, m, plaintext);
         return m;
     }
 
+    /** created_at shares the id's clock read so the storage bucket can be derived from either. */
+    private static LocalDateTime createdAtOf(long messageId) {
+        return LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(MessageIdGenerator.timestampMillis(messageId)), ZoneOffset.UTC);
+    }
+
     private static final Pattern UPLOAD_OBJECT_KEY =
             Pattern.compile("^/uploads/[a-zA-Z0-9][a-zA-Z0-9._-]*$");
 
@@ -947,7 +1220,43 @@ public class ChatDomainService {
                     .setType(type)
                     .setConversationId(conversationId)
                     .build();
-            userIds.forEach(id -> broker.sendTo(id, event));
+            broker.sendTo(userIds, event);
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send.run();
+                }
+            });
+        } else {
+            send.run();
+        }
+    }
+
+    /** Takes a deleted message off the cached badges of {@code userIds} and sends them the new counts. */
+    private void uncountAfterCommit(long conversationId, List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Runnable send = () -> {
+            Map<Long, UnreadCacheService.Counts> cached = unreadCache.decrement(conversationId, userIds);
+            for (long userId : userIds) {
+                UnreadCacheService.Counts hit = cached.get(userId);
+                int unread = hit != null && hit.conversation() >= 0 ? hit.conversation()
+                        : unreadCache.getConversationUnread(userId, conversationId,
+                                () -> participants.findByConversationIdAndUserIdAndDeletedAtIsNull(conversationId, userId)
+                                        .map(ChatDomainService::storedUnread)
+                                        .orElse(0));
+                int total = hit != null && hit.total() >= 0 ? hit.total() : totalUnreadFor(userId);
+                broker.sendTo(userId, ChatEvent.newBuilder()
+                        .setType("UNREAD_COUNT_UPDATE")
+                        .setConversationId(conversationId)
+                        .setUnreadCount(unread)
+                        .setTotalUnreadCount(total)
+                        .build());
+            }
         };
 
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
@@ -985,8 +1294,15 @@ public class ChatDomainService {
 
     private enum Permission { CHANGE_PHOTO, CHANGE_DESCRIPTION, CHANGE_NAME, REMOVE_MEMBERS, ADD_MEMBERS }
 
+    private record KeysetSlice(List<Message> messages, String nextCursor) {}
+
+    public record MessageWindow(List<com.serdar.proto.chat.ChatMessage> messages, String nextCursor) {}
     public record MarkReadResult(int unread, int totalUnread, LocalDateTime lastReadAt) {}
     public record UnreadCounts(int total, Map<Long, Integer> perConversation) {}
+    public record Inbox(List<InboxEntry> entries, int total, boolean hasMore) {}
+    /** {@code lastMessage} is null while the conversation has no message the user can see. */
+    public record InboxEntry(Conversation conversation, com.serdar.proto.chat.ChatMessage lastMessage,
+                             int unread, boolean muted, boolean pinned, LocalDateTime lastActivityAt) {}
     public record ReadState(LocalDateTime myLastReadAt, LocalDateTime friendLastReadAt,
                             Long seenMyMessageId, long friendUserId, long myUserId) {}
     public record PermissionValues(
@@ -1,5 +1,7 @@
 package com.serdar.chat.service;
 
+import com.serdar.chat.cache.RosterCache;
+import com.serdar.chat.cassandra.InboxProjection;
 import com.serdar.chat.client.UserClient;
 import com.serdar.chat.config.ChatLimits;
 import com.serdar.chat.entity.Conversation;
@@ -30,6 +32,8 @@ public class ConversationService {
     private final UserClient userClient;
     private final EventBroker broker;
     private final ChatLimits limits;
+    private final RosterCache rosters;
+    private final InboxProjection inboxes;
 
     /**
      * Canonicalise direct conversations so (a,b) and (b,a) hit the same row.
@@ -58,6 +62,8 @@ public class ConversationService {
                     .conversationId(c.getId()).userId(a).joinedAt(now).build());
             participants.save(ConversationParticipant.builder()
                     .conversationId(c.getId()).userId(b).joinedAt(now).build());
+            inboxes.joined(a, c.getId(), b, false, false, now);
+            inboxes.joined(b, c.getId(), a, false, false, now);
             return c;
         } catch (DataIntegrityViolationException ex) {
             return conversations.findByTypeAndUserAIdAndUserBId(Conversation.Type.DIRECT, a, b)
@@ -108,6 +114,8 @@ public class ConversationService {
         Set<Long> notifyUserIds = new LinkedHashSet<>();
         notifyUserIds.add(creatorId);
         notifyUserIds.addAll(validMemberIds);
+        notifyUserIds.forEach(id -> inboxes.joined(id, c.getId(), 0, false, false, now));
+        rosters.invalidateAfterCommit(c.getId(), notifyUserIds);
         notifyMessagingGroupAdded(c.getId(), notifyUserIds);
 
         return c;
@@ -137,7 +145,7 @@ public class ConversationService {
                     .setType("MESSAGING_GROUP_ADDED")
                     .setConversationId(conversationId)
                     .build();
-            userIds.forEach(id -> broker.sendTo(id, event));
+            broker.sendTo(userIds, event);
         };
 
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
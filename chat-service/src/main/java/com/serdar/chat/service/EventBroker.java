@@ -1,59 +1,116 @@
 package com.serdar.chat.service;
 
-import com.serdar.chat.messaging.ChatEventEnvelope;
-import com.serdar.chat.messaging.ChatEventRabbitConfig;
+import com.serdar.chat.messaging.ChatEventPublisher;
 import com.serdar.proto.chat.ChatEvent;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Per-user event fan-out for chat streams.
  *
  * Local subscribers are served in-memory. When Rabbit fan-out is enabled,
- * committed chat events are also published to a shared exchange so another
- * chat-service instance can deliver the same event to its own local streams.
+ * committed chat events are also published to the instances that
+ * {@link StreamRegistry} lists as holding a stream for a recipient, each
+ * through its own routing key on a direct exchange. An event for many
+ * recipients is relayed once per instance with the recipient ids attached.
+ * Nothing leaves this instance for users with no streams elsewhere.
+ *
+ * Every stream gets a bounded {@link EventSubscription} queue that honours
+ * gRPC flow control, so delivering to a slow stream costs the sender an
+ * enqueue, never a blocked write. Streams that overflow are dropped or
+ * trimmed per {@code app.chat-events.slow-consumer-policy}.
  */
 @Component
 public class EventBroker {
 
     private static final Logger log = LoggerFactory.getLogger(EventBroker.class);
 
-    private final Map<Long, Set<StreamObserver<ChatEvent>>> subs = new ConcurrentHashMap<>();
+    private final Map<Long, Set<EventSubscription>> subs = new ConcurrentHashMap<>();
     private final Map<Long, Integer> sessionCounts = new ConcurrentHashMap<>();
-    private final RabbitTemplate rabbit;
+    private final Map<EventSubscription, Runnable> evictionHandlers = new ConcurrentHashMap<>();
+    private final ChatEventPublisher publisher;
     private final boolean rabbitEnabled;
-    private final String instanceId = UUID.randomUUID().toString();
+    private final int queueCapacity;
+    private final EventSubscription.SlowConsumerPolicy slowConsumerPolicy;
+    private final StreamRegistry registry;
+
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final Counter evicted;
 
     public EventBroker(
-            ObjectProvider<RabbitTemplate> rabbit,
-            @Value("${app.chat-events.rabbit-enabled}") boolean rabbitEnabled
+            ObjectProvider<ChatEventPublisher> publisher,
+            StreamRegistry registry,
+            MeterRegistry meters,
+            @Value("${app.chat-events.rabbit-enabled}") boolean rabbitEnabled,
+            @Value("${app.chat-events.subscriber-queue-capacity}") int queueCapacity,
+            @Value("${app.chat-events.slow-consumer-policy}") EventSubscription.SlowConsumerPolicy slowConsumerPolicy
     ) {
-        this.rabbit = rabbit.getIfAvailable();
+        this.publisher = publisher.getIfAvailable();
+        this.registry = registry;
         this.rabbitEnabled = rabbitEnabled;
+        this.queueCapacity = queueCapacity;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.coalesced = meters.counter("chat.events.coalesced");
+        this.dropped = meters.counter("chat.events.dropped");
+        this.evicted = meters.counter("chat.events.evicted");
+        Gauge.builder("chat.events.subscribers", evictionHandlers, Map::size).register(meters);
+        Gauge.builder("chat.events.queue.depth", this, b -> b.queueDepth(false))
+                .description("Events waiting in all subscriber queues").register(meters);
+        Gauge.builder("chat.events.queue.depth.max", this, b -> b.queueDepth(true))
+                .description("Deepest single subscriber queue").register(meters);
     }
 
-    public void subscribe(long userId, StreamObserver<ChatEvent> sub) {
-        subs.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(sub);
+    /**
+     * Registers a stream. Must be called from the RPC method itself so the
+     * on-ready handler is installed before it returns. {@code onEvicted} runs
+     * when the broker drops the stream for falling behind.
+     */
+    public EventSubscription subscribe(long userId, StreamObserver<ChatEvent> out, Runnable onEvicted) {
+        EventSubscription sub = new EventSubscription(userId, out, queueCapacity, slowConsumerPolicy, this);
+        evictionHandlers.put(sub, onEvicted);
+        // Added inside compute so a concurrent unsubscribe cannot drop the set this lands in.
+        subs.compute(userId, (k, set) -> {
+            if (set == null) set = ConcurrentHashMap.newKeySet();
+            set.add(sub);
+            return set;
+        });
+        registry.claim(userId);
         int sessions = sessionCounts.merge(userId, 1, Integer::sum);
         log.debug("user {} subscribed ({} sessions)", userId, sessions);
+        return sub;
     }
 
-    public void unsubscribe(long userId, StreamObserver<ChatEvent> sub) {
-        Set<StreamObserver<ChatEvent>> s = subs.get(userId);
-        if (s != null) {
-            s.remove(sub);
-            if (s.isEmpty()) subs.remove(userId);
+    public void unsubscribe(EventSubscription sub) {
+        sub.close();
+        evictionHandlers.remove(sub);
+        long userId = sub.userId();
+        boolean[] found = new boolean[1];
+        Set<EventSubscription> left = subs.computeIfPresent(userId, (k, set) -> {
+            found[0] = set.remove(sub);
+            return set.isEmpty() ? null : set;
+        });
+        if (!found[0]) return;
+        if (left == null) {
+            registry.release(userId);
+            // A stream that opened meanwhile found the claim still held and skipped it; take it back.
+            if (subs.containsKey(userId)) registry.claim(userId);
         }
         Integer n = sessionCounts.computeIfPresent(userId, (k, v) -> v <= 1 ? null : v - 1);
         log.debug("user {} unsubscribed ({} sessions left)", userId, n == null ? 0 : n);
@@ -63,44 +120,96 @@ public class EventBroker {
         return subs.containsKey(userId);
     }
 
+    /** Users among {@code userIds} with a stream on any instance. */
+    public Set<Long> onlineAmong(Collection<Long> userIds) {
+        Set<Long> online = new HashSet<>();
+        for (Long id : userIds) {
+            if (subs.containsKey(id)) online.add(id);
+        }
+        if (!rabbitEnabled || online.size() == userIds.size()) return online;
+        try {
+            online.addAll(registry.onlineAmong(userIds));
+        } catch (Exception e) {
+            log.warn("Could not read stream registry: {}", e.getMessage());
+        }
+        return online;
+    }
+
     public void sendTo(long userId, ChatEvent event) {
-        deliverLocal(userId, event);
-        publishRemote(userId, event);
+        sendTo(List.of(userId), event);
+    }
+
+    /** Sends the same event to every user in {@code userIds}. */
+    public void sendTo(Collection<Long> userIds, ChatEvent event) {
+        for (long userId : userIds) deliverLocal(userId, event);
+        publishRemote(userIds, event);
     }
 
-    public void deliverRemote(long userId, ChatEvent event, String originId) {
-        if (instanceId.equals(originId)) return;
-        deliverLocal(userId, event);
+    public void deliverRemote(Collection<Long> userIds, ChatEvent event, String originId) {
+        if (registry.instanceId().equals(originId)) return;
+        for (long userId : userIds) deliverLocal(userId, event);
+    }
+
+    void evict(EventSubscription sub) {
+        Runnable onEvicted = evictionHandlers.get(sub);
+        unsubscribe(sub);
+        if (onEvicted == null) return;
+        evicted.increment();
+        log.warn("evicted slow event stream for user {}", sub.userId());
+        try {
+            onEvicted.run();
+        } catch (Exception e) {
+            log.debug("eviction handler failed for user {}: {}", sub.userId(), e.toString());
+        }
+    }
+
+    void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
     }
 
     private void deliverLocal(long userId, ChatEvent event) {
-        Set<StreamObserver<ChatEvent>> s = subs.get(userId);
+        Set<EventSubscription> s = subs.get(userId);
         if (s == null) return;
-        for (Iterator<StreamObserver<ChatEvent>> it = s.iterator(); it.hasNext(); ) {
-            StreamObserver<ChatEvent> sub = it.next();
-            try {
-                sub.onNext(event);
-            } catch (Exception e) {
-                log.warn("drop subscriber for {}: {}", userId, e.getMessage());
-                it.remove();
-            }
+        for (EventSubscription sub : s) {
+            sub.offer(event);
+        }
+    }
+
+    private double queueDepth(boolean max) {
+        long total = 0;
+        int deepest = 0;
+        for (EventSubscription sub : evictionHandlers.keySet()) {
+            int depth = sub.depth();
+            total += depth;
+            deepest = Math.max(deepest, depth);
         }
+        return max ? deepest : total;
     }
 
-    private void publishRemote(long userId, ChatEvent event) {
-        if (!rabbitEnabled) return;
-        if (rabbit == null) {
-            log.warn("Rabbit chat event fan-out is enabled but no RabbitTemplate is available");
+    private void publishRemote(Collection<Long> userIds, ChatEvent event) {
+        if (!rabbitEnabled || userIds.isEmpty()) return;
+        if (publisher == null) {
+            log.warn("Rabbit chat event fan-out is enabled but no relay publisher is available");
             return;
         }
+        Map<Long, Set<String>> live;
         try {
-            rabbit.convertAndSend(
-                    ChatEventRabbitConfig.EXCHANGE,
-                    "",
-                    new ChatEventEnvelope(userId, event.toByteArray(), instanceId)
-            );
+            live = registry.instancesOf(userIds);
         } catch (Exception e) {
-            log.warn("Could not publish chat event to RabbitMQ: {}", e.getMessage());
+            log.warn("Could not read stream registry: {}", e.getMessage());
+            return;
         }
+        String self = registry.instanceId();
+        Map<String, List<Long>> byInstance = new HashMap<>();
+        live.forEach((userId, instances) -> {
+            for (String instance : instances) {
+                if (!instance.equals(self)) byInstance.computeIfAbsent(instance, k -> new ArrayList<>()).add(userId);
+            }
+        });
+        byInstance.forEach((instance, recipients) -> publisher.publish(instance, recipients, event));
     }
 }
@@ -0,0 +1,181 @@
+package com.serdar.chat.service;
+
+import com.serdar.proto.chat.ChatEvent;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One SubscribeEvents stream with its own bounded outbound queue.
+ *
+ * Producers only enqueue; events are written while the transport reports
+ * {@code isReady()} and the rest is picked up from the on-ready handler, so a
+ * slow gateway stream never blocks the thread that sent the message. Events
+ * that only carry the latest state (typing, unread counts, presence) replace
+ * their queued predecessor instead of piling up behind it. A queue that still
+ * overflows is handled by the broker's {@link SlowConsumerPolicy}.
+ */
+public final class EventSubscription {
+
+    public enum SlowConsumerPolicy { DISCONNECT, DROP_OLDEST }
+
+    /** What a queued event may be superseded by. */
+    private record CoalesceKey(String type, long conversationId, long subjectUserId) {}
+
+    private final long userId;
+    private final StreamObserver<ChatEvent> out;
+    private final ServerCallStreamObserver<ChatEvent> flow;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final EventBroker broker;
+
+    // Guarded by this. Keys are CoalesceKey for supersedable events, a sequence number otherwise.
+    private final LinkedHashMap<Object, ChatEvent> pending = new LinkedHashMap<>();
+    private long sequence;
+    private boolean draining;
+    private boolean closed;
+    // Set on overflow; written to the observer by whichever thread holds the draining slot.
+    private Status failWith;
+
+    EventSubscription(long userId, StreamObserver<ChatEvent> out, int capacity,
+                      SlowConsumerPolicy policy, EventBroker broker) {
+        this.userId = userId;
+        this.out = out;
+        this.flow = out instanceof ServerCallStreamObserver<ChatEvent> srv ? srv : null;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.broker = broker;
+        if (flow != null) {
+            flow.setOnReadyHandler(this::drain);
+        }
+    }
+
+    public long userId() {
+        return userId;
+    }
+
+    StreamObserver<ChatEvent> observer() {
+        return out;
+    }
+
+    synchronized int depth() {
+        return pending.size();
+    }
+
+    /** Queue an event for this stream and write whatever the transport accepts right now. */
+    public void offer(ChatEvent event) {
+        boolean evict = false;
+        synchronized (this) {
+            if (closed) return;
+            CoalesceKey key = coalesceKey(event);
+            ChatEvent superseded = key != null ? pending.remove(key) : null;
+            if (superseded != null) {
+                broker.recordCoalesced();
+                event = merge(superseded, event);
+            }
+            if (pending.size() >= capacity) {
+                if (policy == SlowConsumerPolicy.DROP_OLDEST) {
+                    Iterator<ChatEvent> oldest = pending.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    broker.recordDropped();
+                } else {
+                    closed = true;
+                    pending.clear();
+                    failWith = Status.RESOURCE_EXHAUSTED
+                            .withDescription("Event stream fell too far behind; resubscribe");
+                    evict = true;
+                }
+            }
+            if (!evict) {
+                pending.put(key != null ? key : sequence++, event);
+            }
+        }
+        if (evict) {
+            broker.evict(this);
+        }
+        drain();
+    }
+
+    /** Stops delivery; queued events are discarded. */
+    synchronized void close() {
+        closed = true;
+        pending.clear();
+    }
+
+    /**
+     * Writes queued events while the transport is ready. Only the thread that
+     * holds the {@code draining} slot touches the observer, which is not
+     * thread-safe; after a failure is written the slot is never given back.
+     */
+    private void drain() {
+        while (true) {
+            ChatEvent next;
+            Status fail;
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                fail = failWith;
+                if (fail != null) {
+                    failWith = null;
+                } else if (closed || pending.isEmpty() || (flow != null && !flow.isReady())) {
+                    return;
+                }
+                draining = true;
+                if (fail != null) {
+                    next = null;
+                } else {
+                    Iterator<Map.Entry<Object, ChatEvent>> head = pending.entrySet().iterator();
+                    next = head.next().getValue();
+                    head.remove();
+                }
+            }
+            if (fail != null) {
+                try {
+                    out.onError(fail.asRuntimeException());
+                } catch (Exception ignore) {
+                    // Stream already gone.
+                }
+                return;
+            }
+            try {
+                out.onNext(next);
+            } catch (Exception e) {
+                close();
+                broker.evict(this);
+                return;
+            } finally {
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * The event that replaces {@code older} in the queue. Only some unread
+     * updates carry the user's total; one that does not must not take a
+     * queued total away from the client, so it inherits the older one.
+     */
+    private static ChatEvent merge(ChatEvent older, ChatEvent newer) {
+        if ("UNREAD_COUNT_UPDATE".equals(newer.getType())
+                && !newer.hasTotalUnreadCount() && older.hasTotalUnreadCount()) {
+            return newer.toBuilder().setTotalUnreadCount(older.getTotalUnreadCount()).build();
+        }
+        return newer;
+    }
+
+    private static CoalesceKey coalesceKey(ChatEvent event) {
+        return switch (event.getType()) {
+            case "TYPING" -> new CoalesceKey("TYPING", event.getConversationId(), event.getSubjectUserId());
+            case "UNREAD_COUNT_UPDATE" -> new CoalesceKey("UNREAD_COUNT_UPDATE", event.getConversationId(), 0);
+            case "PRESENCE_UPDATE" -> new CoalesceKey("PRESENCE_UPDATE", 0, event.getSubjectUserId());
+            default -> null;
+        };
+    }
+}
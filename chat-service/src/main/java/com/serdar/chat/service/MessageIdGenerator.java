@@ -5,6 +5,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 /** Time-ordered positive long IDs compatible with proto int64 and JS JSON (safe integer). */
 public final class MessageIdGenerator {
     private static final AtomicInteger SEQ = new AtomicInteger(0);
+    private static final long SEQ_RANGE = 1024L;
 
     private MessageIdGenerator() {}
 
@@ -12,6 +13,11 @@ public final class MessageIdGenerator {
         long ts = System.currentTimeMillis();
         int seq = SEQ.updateAndGet(i -> (i + 1) & 0x3FF);
         // ts * 1024 + seq stays below Number.MAX_SAFE_INTEGER for decades.
-        return ts * 1024L + seq;
+        return ts * SEQ_RANGE + seq;
+    }
+
+    /** Epoch millis encoded in an id produced by {@link #nextId()}. */
+    public static long timestampMillis(long id) {
+        return id / SEQ_RANGE;
     }
 }
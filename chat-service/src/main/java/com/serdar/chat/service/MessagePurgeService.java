@@ -0,0 +1,178 @@
+package com.serdar.chat.service;
+
+import com.serdar.chat.cache.RecentMessageCache;
+import com.serdar.chat.entity.MessagePurge;
+import com.serdar.chat.repository.MessagePurgeRepository;
+import com.serdar.chat.repository.MessageStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs Cassandra history purges off the request path.
+ *
+ * Deleting a conversation or an account only records a {@link MessagePurge}
+ * row in the caller's MySQL transaction; a background worker picks it up once
+ * that commits. The row carries status and attempt count and survives
+ * restarts. While a purge runs, the worker saves {@code itemsDone} and
+ * {@code updatedAt} after every batch the store reports, so the row shows how
+ * far it got and doubles as a heartbeat: only a purge whose row has not moved
+ * for {@link #STALE_AFTER}, i.e. one left RUNNING by a dead instance, is
+ * reclaimed. Every purge is idempotent, so a rerun after a crash is harmless.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessagePurgeService {
+
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration STALE_AFTER = Duration.ofMinutes(10);
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final MessagePurgeRepository purges;
+    private final MessageStore messages;
+    private final RecentMessageCache recent;
+
+    private final LinkedBlockingQueue<Boolean> wakeups = new LinkedBlockingQueue<>(1);
+
+    /** Queue removal of a whole conversation's history. */
+    public void enqueueConversation(long conversationId, Collection<Long> senderIds) {
+        enqueue(MessagePurge.builder()
+                .kind(MessagePurge.Kind.CONVERSATION)
+                .conversationId(conversationId)
+                .senderIds(MessagePurge.joinIds(senderIds)));
+    }
+
+    /** Queue removal of one user's messages from a conversation that stays. */
+    public void enqueueSender(long conversationId, long senderId) {
+        enqueue(MessagePurge.builder()
+                .kind(MessagePurge.Kind.SENDER)
+                .conversationId(conversationId)
+                .senderId(senderId));
+    }
+
+    private void enqueue(MessagePurge.MessagePurgeBuilder builder) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        purges.save(builder
+                .status(MessagePurge.Status.PENDING)
+                .attempts(0)
+                .itemsDone(0L)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeups.offer(Boolean.TRUE);
+                }
+            });
+        } else {
+            wakeups.offer(Boolean.TRUE);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread worker = new Thread(this::loop, "message-purge");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void loop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                while (drain()) {
+                    // keep going while batches come back full
+                }
+                wakeups.poll(POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Message purge worker error: {}", e.toString());
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * Run one batch. Returns true when the batch was full and another should
+     * follow straight away; failed purges otherwise wait for the next poll.
+     */
+    boolean drain() {
+        List<MessagePurge> pending = purges.findTop20ByStatusOrderByIdAsc(MessagePurge.Status.PENDING);
+        List<MessagePurge> batch = new ArrayList<>(pending);
+        batch.addAll(purges.findTop20ByStatusAndUpdatedAtBeforeOrderByIdAsc(
+                MessagePurge.Status.RUNNING, LocalDateTime.now(ZoneOffset.UTC).minus(STALE_AFTER)));
+        for (MessagePurge purge : batch) {
+            LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+            if (purges.claim(purge.getId(), purge.getStatus(), purge.getUpdatedAt(), now,
+                    MessagePurge.Status.RUNNING) == 1) {
+                purge.setStatus(MessagePurge.Status.RUNNING);
+                purge.setAttempts(purge.getAttempts() + 1);
+                purge.setUpdatedAt(now);
+                run(purge);
+            }
+        }
+        return pending.size() == 20;
+    }
+
+    private void run(MessagePurge purge) {
+        long started = System.nanoTime();
+        try {
+            IntConsumer heartbeat = n -> {
+                purge.setItemsDone((long) n);
+                purge.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
+                purges.save(purge);
+            };
+            int done = switch (purge.getKind()) {
+                case CONVERSATION -> messages.deleteByConversationId(
+                        purge.getConversationId(), purge.senderIdList(), heartbeat);
+                case SENDER -> messages.deleteBySenderInConversation(
+                        purge.getConversationId(), purge.getSenderId(), heartbeat);
+            };
+            recent.invalidate(purge.getConversationId());
+            LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+            purge.setStatus(MessagePurge.Status.DONE);
+            purge.setItemsDone((long) done);
+            purge.setLastError(null);
+            purge.setUpdatedAt(now);
+            purge.setFinishedAt(now);
+            purges.save(purge);
+            log.info("Message purge {} ({} of conversation {}) done: {} items in {} ms",
+                    purge.getId(), purge.getKind(), purge.getConversationId(), done,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (Exception e) {
+            boolean giveUp = purge.getAttempts() >= MAX_ATTEMPTS;
+            String error = e.toString();
+            purge.setStatus(giveUp ? MessagePurge.Status.FAILED : MessagePurge.Status.PENDING);
+            purge.setLastError(error.length() > 1024 ? error.substring(0, 1024) : error);
+            purge.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
+            purges.save(purge);
+            log.warn("Message purge {} attempt {} failed{}: {}",
+                    purge.getId(), purge.getAttempts(), giveUp ? " permanently" : "", error);
+        }
+    }
+
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
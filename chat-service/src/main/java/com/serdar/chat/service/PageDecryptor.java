@@ -0,0 +1,121 @@
+package com.serdar.chat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Decrypts history pages on a small pool sized to the cores.
+ *
+ * A page is cut into chunks of {@link #CHUNK} messages; the calling thread
+ * works through the first chunk while the pool takes the rest, and results
+ * are written back by index so the output order matches the input. Pages up
+ * to {@link #INLINE_MAX} messages, and chunks the pool has no room for, are
+ * decrypted on the calling thread.
+ */
+@Component
+public class PageDecryptor {
+
+    static final int INLINE_MAX = 32;
+    static final int CHUNK = 32;
+    private static final int QUEUE_PER_THREAD = 16;
+
+    private final ThreadPoolExecutor pool;
+    private final Timer queued;
+    private final Timer decrypting;
+    private final Counter inline;
+    private final Counter rejected;
+
+    @Autowired
+    public PageDecryptor(MeterRegistry meters) {
+        this(Runtime.getRuntime().availableProcessors(), meters);
+    }
+
+    PageDecryptor(int threads, MeterRegistry meters) {
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), r -> {
+                    Thread t = new Thread(r, "message-decrypt-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.queued = meters.timer("chat.decrypt.queued");
+        this.decrypting = meters.timer("chat.decrypt.chunk");
+        this.inline = meters.counter("chat.decrypt.inline.pages");
+        this.rejected = meters.counter("chat.decrypt.rejected.chunks");
+    }
+
+    /** {@code fn} applied to every element of {@code page}, in page order. */
+    public <T, R> List<R> map(List<T> page, Function<T, R> fn) {
+        int n = page.size();
+        if (n <= INLINE_MAX) {
+            inline.increment();
+            List<R> out = new ArrayList<>(n);
+            for (T t : page) out.add(fn.apply(t));
+            return out;
+        }
+        Object[] out = new Object[n];
+        List<Future<?>> pending = new ArrayList<>(n / CHUNK);
+        for (int from = CHUNK; from < n; from += CHUNK) {
+            int start = from;
+            int end = Math.min(from + CHUNK, n);
+            long submitted = System.nanoTime();
+            try {
+                pending.add(pool.submit(() -> {
+                    queued.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                    run(page, fn, out, start, end);
+                }));
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                run(page, fn, out, start, end);
+            }
+        }
+        run(page, fn, out, 0, Math.min(CHUNK, n));
+        for (Future<?> f : pending) {
+            await(f);
+        }
+        @SuppressWarnings("unchecked")
+        List<R> result = (List<R>) Arrays.asList(out);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private <T, R> void run(List<T> page, Function<T, R> fn, Object[] out, int from, int to) {
+        long started = System.nanoTime();
+        for (int i = from; i < to; i++) {
+            out[i] = fn.apply(page.get(i));
+        }
+        decrypting.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private static void await(Future<?> f) {
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while decrypting", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Decrypt failed", e.getCause());
+        }
+    }
+}
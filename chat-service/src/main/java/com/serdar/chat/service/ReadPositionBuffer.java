@@ -0,0 +1,155 @@
+package com.serdar.chat.service;
+
+import com.serdar.chat.cache.RosterCache;
+import com.serdar.proto.chat.ChatEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for read positions.
+ *
+ * markRead only records the newest lastReadAt per (conversation, reader); a
+ * worker writes whatever has accumulated to MySQL in one JDBC batch every
+ * {@link #FLUSH_MILLIS} and once more on shutdown. The update only ever moves
+ * a position forward. The first READ receipt in a window goes out at once;
+ * further reads in the same window fold into a single receipt at the next
+ * flush, carrying the latest position.
+ */
+@Slf4j
+@Component
+public class ReadPositionBuffer {
+
+    static final long FLUSH_MILLIS = 250;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(FLUSH_MILLIS);
+    private static final int BATCH_SIZE = 500;
+    private static final String UPDATE = "UPDATE conversation_participants SET last_read_at = ?"
+            + " WHERE id = ? AND (last_read_at IS NULL OR last_read_at < ?)";
+
+    private record Key(long conversationId, long userId) {}
+
+    private record Position(long participantId, LocalDateTime at) {}
+
+    private final JdbcTemplate jdbc;
+    private final RosterCache rosters;
+    private final EventBroker broker;
+
+    private final Map<Key, Position> pending = new ConcurrentHashMap<>();
+    private final Map<Key, Long> lastReceiptNanos = new ConcurrentHashMap<>();
+    private final Map<Key, LocalDateTime> owedReceipts = new ConcurrentHashMap<>();
+
+    private final Counter accepted;
+    private final Counter written;
+    private final Counter coalesced;
+
+    public ReadPositionBuffer(JdbcTemplate jdbc, RosterCache rosters, EventBroker broker, MeterRegistry meters) {
+        this.jdbc = jdbc;
+        this.rosters = rosters;
+        this.broker = broker;
+        this.accepted = meters.counter("chat.read.accepted");
+        this.written = meters.counter("chat.read.flushed");
+        this.coalesced = meters.counter("chat.read.receipts.coalesced");
+        Gauge.builder("chat.read.pending", pending, Map::size).register(meters);
+    }
+
+    /** Records a read position and sends or schedules its READ receipt. */
+    public void accept(long conversationId, long userId, long participantId, LocalDateTime at) {
+        Key key = new Key(conversationId, userId);
+        pending.merge(key, new Position(participantId, at), (old, next) -> next.at().isAfter(old.at()) ? next : old);
+        accepted.increment();
+
+        long now = System.nanoTime();
+        Long last = lastReceiptNanos.get(key);
+        if (last == null || now - last >= WINDOW_NANOS) {
+            lastReceiptNanos.put(key, now);
+            sendReceipt(key, at);
+        } else {
+            owedReceipts.merge(key, at, (old, next) -> next.isAfter(old) ? next : old);
+            coalesced.increment();
+        }
+    }
+
+    /** The later of {@code stored} and a position still waiting to be written. */
+    public LocalDateTime lastReadAt(long conversationId, long userId, LocalDateTime stored) {
+        Position p = pending.get(new Key(conversationId, userId));
+        if (p == null) return stored;
+        return stored == null || p.at().isAfter(stored) ? p.at() : stored;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread worker = new Thread(this::flushLoop, "read-position-flush");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flushLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(FLUSH_MILLIS);
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Read position flush failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    synchronized void flush() {
+        if (!pending.isEmpty()) {
+            // Entries leave the buffer only once written, so lastReadAt() never
+            // falls back to a row that is still behind.
+            List<Map.Entry<Key, Position>> batch = List.copyOf(pending.entrySet());
+            jdbc.batchUpdate(UPDATE, batch, BATCH_SIZE, (ps, e) -> {
+                Timestamp at = Timestamp.valueOf(e.getValue().at());
+                ps.setTimestamp(1, at);
+                ps.setLong(2, e.getValue().participantId());
+                ps.setTimestamp(3, at);
+            });
+            batch.forEach(e -> pending.remove(e.getKey(), e.getValue()));
+            written.increment(batch.size());
+        }
+
+        for (Key key : List.copyOf(owedReceipts.keySet())) {
+            LocalDateTime at = owedReceipts.remove(key);
+            if (at == null) continue;
+            lastReceiptNanos.put(key, System.nanoTime());
+            sendReceipt(key, at);
+        }
+        long now = System.nanoTime();
+        lastReceiptNanos.values().removeIf(sent -> now - sent >= WINDOW_NANOS);
+    }
+
+    private void sendReceipt(Key key, LocalDateTime at) {
+        try {
+            broker.sendTo(rosters.get(key.conversationId()).userIds(), ChatEvent.newBuilder()
+                    .setType("READ")
+                    .setConversationId(key.conversationId())
+                    .setReaderId(key.userId())
+                    .setLastReadAtMillis(at.toInstant(ZoneOffset.UTC).toEpochMilli())
+                    .build());
+        } catch (Exception e) {
+            log.warn("Could not send READ receipt for conversation {}: {}", key.conversationId(), e.getMessage());
+        }
+    }
+}
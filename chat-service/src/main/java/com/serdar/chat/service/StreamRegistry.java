@@ -0,0 +1,166 @@
+package com.serdar.chat.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which chat-service instances hold an event stream for which user.
+ *
+ * One Redis sorted set per user, {@code chat:streams:{userId}}: members are
+ * instance ids, scores the time their claim expires. An instance claims a user
+ * when the first local stream opens, drops the claim when the last one
+ * closes, and re-claims all its users on a heartbeat, so the entries of a
+ * crashed instance simply age out. Only used when cross-instance fan-out is
+ * enabled; otherwise everything is local.
+ */
+@Slf4j
+@Component
+public class StreamRegistry {
+
+    private static final String KEY = "chat:streams:";
+    private static final long HEARTBEAT_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    private static final long CLAIM_MILLIS = HEARTBEAT_MILLIS * 3;
+
+    private final StringRedisTemplate redis;
+    private final boolean enabled;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+
+    public StreamRegistry(StringRedisTemplate redis,
+                          @Value("${app.chat-events.rabbit-enabled}") boolean enabled) {
+        this.redis = redis;
+        this.enabled = enabled;
+    }
+
+    /** Routing key of this instance's queue on the chat events exchange. */
+    public String instanceId() {
+        return instanceId;
+    }
+
+    public void claim(long userId) {
+        if (!enabled || !claimed.add(userId)) return;
+        try {
+            long now = System.currentTimeMillis();
+            String key = KEY + userId;
+            redis.opsForZSet().add(key, instanceId, now + CLAIM_MILLIS);
+            redis.opsForZSet().removeRangeByScore(key, 0, now);
+            redis.expire(key, CLAIM_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Could not register event stream for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    public void release(long userId) {
+        if (!enabled || !claimed.remove(userId)) return;
+        try {
+            redis.opsForZSet().remove(KEY + userId, instanceId);
+        } catch (Exception e) {
+            log.warn("Could not unregister event stream for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /** Instances with a live stream for each user, this one included, in one pipelined round trip. Users with none are left out. */
+    @SuppressWarnings("unchecked")
+    public Map<Long, Set<String>> instancesOf(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return Map.of();
+        List<Long> ids = new ArrayList<>(userIds);
+        double now = System.currentTimeMillis();
+        List<Object> ranges = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection c = (StringRedisConnection) connection;
+            for (Long id : ids) c.zRangeByScore(KEY + id, now, Double.MAX_VALUE);
+            return null;
+        });
+        Map<Long, Set<String>> live = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (ranges.get(i) instanceof Set<?> members && !members.isEmpty()) {
+                live.put(ids.get(i), (Set<String>) members);
+            }
+        }
+        return live;
+    }
+
+    /** Users among {@code userIds} with a live stream anywhere, in one pipelined round trip. */
+    public Set<Long> onlineAmong(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return Set.of();
+        List<Long> ids = new ArrayList<>(userIds);
+        double now = System.currentTimeMillis();
+        List<Object> counts = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection c = (StringRedisConnection) connection;
+            for (Long id : ids) c.zCount(KEY + id, now, Double.MAX_VALUE);
+            return null;
+        });
+        Set<Long> online = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (counts.get(i) instanceof Long n && n > 0) online.add(ids.get(i));
+        }
+        return online;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        Thread worker = new Thread(this::heartbeatLoop, "stream-registry-heartbeat");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled || claimed.isEmpty()) return;
+        try {
+            List<Long> users = List.copyOf(claimed);
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection c = (StringRedisConnection) connection;
+                for (Long id : users) c.zRem(KEY + id, instanceId);
+                return null;
+            });
+        } catch (Exception e) {
+            log.debug("Could not drop stream claims on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private void heartbeatLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(HEARTBEAT_MILLIS);
+                heartbeat();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Stream registry heartbeat failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    void heartbeat() {
+        if (claimed.isEmpty()) return;
+        List<Long> users = List.copyOf(claimed);
+        double expiresAt = System.currentTimeMillis() + CLAIM_MILLIS;
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection c = (StringRedisConnection) connection;
+            for (Long id : users) {
+                c.zAdd(KEY + id, expiresAt, instanceId);
+                c.pExpire(KEY + id, CLAIM_MILLIS);
+            }
+            return null;
+        });
+    }
+}
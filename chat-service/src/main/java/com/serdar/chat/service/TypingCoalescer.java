@@ -0,0 +1,68 @@
+package com.serdar.chat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Lets at most one TYPING event per (conversation, user) through per window.
+ *
+ * Clients report typing several times a second; everything after the first
+ * report in a window is dropped before any lookup or fan-out happens. Entries
+ * expire with the window, and the map is pruned once it grows past
+ * {@link #MAX_ENTRIES}.
+ */
+@Component
+public class TypingCoalescer {
+
+    private static final int MAX_ENTRIES = 100_000;
+
+    private record Key(long conversationId, long userId) {}
+
+    private final Map<Key, Long> lastEmitted = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final Counter emitted;
+    private final Counter suppressed;
+
+    @Autowired
+    public TypingCoalescer(@Value("${app.chat-events.typing-window-millis}") long windowMillis, MeterRegistry meters) {
+        this(windowMillis, meters, System::nanoTime);
+    }
+
+    TypingCoalescer(long windowMillis, MeterRegistry meters, LongSupplier clock) {
+        if (windowMillis <= 0) throw new IllegalStateException("app.chat-events.typing-window-millis must be positive");
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.clock = clock;
+        this.emitted = meters.counter("chat.typing.emitted");
+        this.suppressed = meters.counter("chat.typing.suppressed");
+    }
+
+    /** True if this report should be broadcast, false if one already went out in the current window. */
+    public boolean tryEmit(long conversationId, long userId) {
+        long now = clock.getAsLong();
+        Key key = new Key(conversationId, userId);
+        boolean[] won = {false};
+        lastEmitted.compute(key, (k, last) -> {
+            if (last != null && now - last < windowNanos) return last;
+            won[0] = true;
+            return now;
+        });
+        if (!won[0]) {
+            suppressed.increment();
+            return false;
+        }
+        emitted.increment();
+        if (lastEmitted.size() > MAX_ENTRIES) {
+            lastEmitted.values().removeIf(last -> now - last >= windowNanos);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.serdar.chat.service;
+
+import com.serdar.chat.client.UserClient;
+import com.serdar.chat.entity.Conversation;
+import com.serdar.chat.entity.ConversationParticipant;
+import com.serdar.chat.repository.ConversationParticipantRepository;
+import com.serdar.chat.repository.ConversationRepository;
+import com.serdar.chat.repository.MessageStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds {@code conversation_participants.unread_count} from message history.
+ *
+ * This is the only place unread messages are counted row by row. It fills in
+ * counters that are NULL — rows that predate the column, or rows an operator
+ * reset to NULL to force a rebuild — on a background thread after startup.
+ * The write is conditional on the counter still being NULL, so it never
+ * overwrites a value maintained by live traffic.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UnreadCounterRepair {
+
+    private static final int PAGE_SIZE = 200;
+
+    private final ConversationParticipantRepository participants;
+    private final ConversationRepository conversations;
+    private final MessageStore messages;
+    private final UserClient userClient;
+    private final ReadPositionBuffer readPositions;
+
+    @Value("${app.unread.repair-enabled}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread worker = new Thread(this::runSafely, "unread-counter-repair");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.warn("Unread counter repair stopped: {}", e.toString());
+        }
+    }
+
+    void run() {
+        long started = System.nanoTime();
+        long afterId = 0;
+        int repaired = 0;
+        while (true) {
+            List<ConversationParticipant> batch = participants
+                    .findByIdGreaterThanAndUnreadCountIsNullAndDeletedAtIsNullOrderByIdAsc(
+                            afterId, PageRequest.of(0, PAGE_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (ConversationParticipant p : batch) {
+                afterId = p.getId();
+                try {
+                    repaired += participants.fillMissingUnread(p.getId(), countFromHistory(p));
+                } catch (Exception e) {
+                    log.warn("Unread counter repair skipped participant {}: {}", p.getId(), e.toString());
+                }
+            }
+        }
+        log.info("Unread counter repair finished: {} counters in {} s",
+                repaired, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    private int countFromHistory(ConversationParticipant p) {
+        long userId = p.getUserId();
+        LocalDateTime readAt = readPositions.lastReadAt(p.getConversationId(), userId, p.getLastReadAt());
+        Conversation c = conversations.findByIdAndDeletedAtIsNull(p.getConversationId()).orElse(null);
+        if (c == null || c.getType() != Conversation.Type.MESSAGING_GROUP) {
+            return (int) messages.countUnreadFor(p.getConversationId(), userId, readAt);
+        }
+        // Group messages from senders the reader blocked are never counted.
+        Set<Long> hidden = userClient.blockedByMeIds(userId);
+        if (hidden.isEmpty()) {
+            return (int) messages.countUnreadFor(p.getConversationId(), userId, readAt);
+        }
+        return (int) messages.findUnreadMessages(p.getConversationId(), userId, readAt).stream()
+                .filter(m -> !hidden.contains(m.getSenderId()))
+                .count();
+    }
+}
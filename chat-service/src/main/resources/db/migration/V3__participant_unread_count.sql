@@ -0,0 +1,3 @@
+-- Maintained per-participant unread counter. NULL marks rows that predate the
+-- column; UnreadCounterRepair fills them in from message history.
+ALTER TABLE conversation_participants ADD COLUMN unread_count INT NULL;
@@ -0,0 +1,16 @@
+-- Background Cassandra purges queued by conversation and account deletion.
+CREATE TABLE IF NOT EXISTS message_purges (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    kind VARCHAR(32) NOT NULL,
+    conversation_id BIGINT NOT NULL,
+    sender_id BIGINT,
+    sender_ids TEXT,
+    status VARCHAR(32) NOT NULL,
+    attempts INT NOT NULL,
+    items_done BIGINT NOT NULL,
+    last_error VARCHAR(1024),
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    finished_at DATETIME(6),
+    KEY idx_message_purges_status (status, updated_at)
+);
@@ -0,0 +1,64 @@
+package com.serdar.chat.cache;
+
+import com.serdar.chat.client.UserClient;
+import com.serdar.chat.entity.Conversation;
+import com.serdar.chat.repository.ConversationParticipantRepository;
+import com.serdar.common.cache.FriendshipChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Built audiences are patched in place; a patch that lands while an audience
+ * is being built keeps that build out of the index.
+ */
+class PresenceAudienceIndexTest {
+
+    private static final long USER = 1L;
+
+    private final UserClient userClient = mock(UserClient.class);
+    private final ConversationParticipantRepository participants = mock(ConversationParticipantRepository.class);
+    private final PresenceAudienceIndex index = new PresenceAudienceIndex(userClient, participants);
+    private final Set<Long> friends = new HashSet<>(Set.of(2L));
+    private final AtomicInteger builds = new AtomicInteger();
+
+    @Test
+    void builtAudienceIsPatchedInPlace() {
+        when(userClient.friendIds(USER)).thenAnswer(inv -> { builds.incrementAndGet(); return List.copyOf(friends); });
+        when(participants.findActiveConversationIds(USER, Conversation.Type.MESSAGING_GROUP)).thenReturn(List.of());
+
+        index.get(USER);
+        index.onFriendshipChanged(new FriendshipChangedEvent(USER, 3L, true));
+        index.onJoined(9L, List.of(USER));
+
+        PresenceAudienceIndex.Audience a = index.get(USER);
+        assertEquals(Set.of(2L, 3L), a.friendIds());
+        assertEquals(Set.of(9L), a.groupIds());
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void patchDuringABuildForcesARebuild() {
+        when(userClient.friendIds(USER)).thenAnswer(inv -> {
+            List<Long> before = List.copyOf(friends);
+            if (builds.incrementAndGet() == 1) {
+                friends.add(3L);
+                index.onFriendshipChanged(new FriendshipChangedEvent(USER, 3L, true));
+            }
+            return before;
+        });
+        when(participants.findActiveConversationIds(USER, Conversation.Type.MESSAGING_GROUP)).thenReturn(List.of());
+
+        assertEquals(Set.of(2L), index.get(USER).friendIds());
+        assertEquals(Set.of(2L, 3L), index.get(USER).friendIds());
+        assertEquals(Set.of(2L, 3L), index.get(USER).friendIds());
+        assertEquals(2, builds.get());
+    }
+}
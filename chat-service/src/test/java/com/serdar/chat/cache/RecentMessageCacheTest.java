@@ -0,0 +1,118 @@
+package com.serdar.chat.cache;
+
+import com.serdar.proto.chat.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The hot tier answers only while its copy matches the shared version: local
+ * writes keep it current, a write from elsewhere makes the next read miss.
+ */
+class RecentMessageCacheTest {
+
+    private static final long CONVERSATION_ID = 5L;
+
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    @Test
+    void localWritesKeepTheCopyCurrent() {
+        RecentMessageCache cache = cache(Long.MAX_VALUE);
+        cache.seed(CONVERSATION_ID, cache.currentVersion(CONVERSATION_ID), newestFirst(1, 10), true);
+
+        cache.append(message(11, "new"));
+        cache.replace(message(10, "edited"));
+
+        RecentMessageCache.Window w = cache.latest(CONVERSATION_ID, Set.of(), 3);
+        assertNotNull(w);
+        assertTrue(w.hasMore());
+        assertEquals(List.of(11L, 10L, 9L), w.newestFirst().stream().map(ChatMessage::getId).toList());
+        assertEquals("edited", w.newestFirst().get(1).getContent());
+    }
+
+    @Test
+    void writeFromAnotherInstanceForcesAMiss() {
+        RecentMessageCache cache = cache(Long.MAX_VALUE);
+        cache.seed(CONVERSATION_ID, cache.currentVersion(CONVERSATION_ID), newestFirst(1, 10), true);
+
+        versions.merge("chat:conv-version:" + CONVERSATION_ID, 1L, Long::sum);
+
+        assertNull(cache.latest(CONVERSATION_ID, Set.of(), 3));
+    }
+
+    @Test
+    void shortIncompleteCopyIsNotServed() {
+        RecentMessageCache cache = cache(Long.MAX_VALUE);
+        cache.seed(CONVERSATION_ID, cache.currentVersion(CONVERSATION_ID), newestFirst(6, 10), false);
+
+        assertNull(cache.latest(CONVERSATION_ID, Set.of(), 10));
+        RecentMessageCache.Window w = cache.latest(CONVERSATION_ID, Set.of(), 4);
+        assertNotNull(w);
+        assertEquals(4, w.newestFirst().size());
+        assertTrue(w.hasMore());
+    }
+
+    @Test
+    void completeCopyAnswersEvenWhenShort() {
+        RecentMessageCache cache = cache(Long.MAX_VALUE);
+        cache.seed(CONVERSATION_ID, cache.currentVersion(CONVERSATION_ID), newestFirst(1, 3), true);
+
+        RecentMessageCache.Window w = cache.latest(CONVERSATION_ID, Set.of(), 10);
+        assertNotNull(w);
+        assertEquals(3, w.newestFirst().size());
+        assertFalse(w.hasMore());
+    }
+
+    @Test
+    void byteBudgetEvictsLeastRecentlyRead() {
+        RecentMessageCache cache = cache(1);
+        cache.seed(CONVERSATION_ID, cache.currentVersion(CONVERSATION_ID), newestFirst(1, 3), true);
+
+        assertNull(cache.latest(CONVERSATION_ID, Set.of(), 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private RecentMessageCache cache(long maxBytes) {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(ops);
+        when(ops.get(anyString())).thenAnswer(inv -> {
+            Long v = versions.get(inv.<String>getArgument(0));
+            return v == null ? null : v.toString();
+        });
+        when(ops.increment(anyString())).thenAnswer(inv -> versions.merge(inv.getArgument(0), 1L, Long::sum));
+        return new RecentMessageCache(redis, maxBytes, new SimpleMeterRegistry());
+    }
+
+    private static List<ChatMessage> newestFirst(long fromId, long toId) {
+        List<ChatMessage> out = new ArrayList<>();
+        for (long id = toId; id >= fromId; id--) out.add(message(id, "m" + id));
+        return out;
+    }
+
+    private static ChatMessage message(long id, String content) {
+        return ChatMessage.newBuilder()
+                .setId(id)
+                .setConversationId(CONVERSATION_ID)
+                .setSenderId(1)
+                .setContent(content)
+                .setCreatedAtMillis(1_000 + id)
+                .build();
+    }
+}
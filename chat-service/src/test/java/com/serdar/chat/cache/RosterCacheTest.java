@@ -0,0 +1,70 @@
+package com.serdar.chat.cache;
+
+import com.serdar.chat.entity.ConversationParticipant;
+import com.serdar.chat.repository.ConversationParticipantRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A roster loaded before an invalidation is served once but never cached,
+ * so the next read sees the membership change.
+ */
+class RosterCacheTest {
+
+    private static final long CONVERSATION_ID = 3L;
+
+    private final ConversationParticipantRepository participants = mock(ConversationParticipantRepository.class);
+    private final List<Long> members = new ArrayList<>(List.of(1L, 2L));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    private RosterCache cache() {
+        ObjectProvider<RabbitTemplate> rabbit = mock(ObjectProvider.class);
+        return new RosterCache(participants, mock(PresenceAudienceIndex.class), rabbit, false);
+    }
+
+    @Test
+    void loadedRosterIsCached() {
+        RosterCache cache = cache();
+        when(participants.findByConversationIdAndDeletedAtIsNull(CONVERSATION_ID)).thenAnswer(inv -> active());
+
+        cache.get(CONVERSATION_ID);
+        cache.get(CONVERSATION_ID);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidationDuringALoadKeepsTheLoadOutOfTheCache() {
+        RosterCache cache = cache();
+        when(participants.findByConversationIdAndDeletedAtIsNull(CONVERSATION_ID)).thenAnswer(inv -> {
+            List<ConversationParticipant> before = active();
+            if (loads.get() == 1) {
+                members.remove(2L);
+                cache.invalidateAfterCommit(CONVERSATION_ID);
+            }
+            return before;
+        });
+
+        assertEquals(2, cache.get(CONVERSATION_ID).size());
+        assertEquals(1, cache.get(CONVERSATION_ID).size());
+        assertEquals(1, cache.get(CONVERSATION_ID).size());
+        assertEquals(2, loads.get());
+    }
+
+    private List<ConversationParticipant> active() {
+        loads.incrementAndGet();
+        return members.stream()
+                .map(id -> ConversationParticipant.builder().conversationId(CONVERSATION_ID).userId(id).build())
+                .toList();
+    }
+}
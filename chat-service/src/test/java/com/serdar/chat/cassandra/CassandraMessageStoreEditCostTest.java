@@ -0,0 +1,167 @@
+package com.serdar.chat.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.serdar.chat.model.Message;
+import com.serdar.chat.service.MessageIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Edit and delete address one row by key. The fake session below answers any
+ * non-key SELECT with the whole conversation, so a regression back to a scan
+ * shows up as a cost that grows with the conversation size.
+ */
+class CassandraMessageStoreEditCostTest {
+
+    private static final long CONVERSATION_ID = 7L;
+    private static final long SENDER_ID = 42L;
+
+    @Test
+    void editCostDoesNotDependOnConversationSize() {
+        Cost small = editOnce(10, true);
+        Cost large = editOnce(100_000, true);
+
+        assertEquals(small, large);
+        assertEquals(1, large.rowsRead());
+    }
+
+    @Test
+    void lookupWithoutClientTimestampIsStillAPointRead() {
+        Cost small = editOnce(10, false);
+        Cost large = editOnce(100_000, false);
+
+        assertEquals(small, large);
+        assertEquals(1, large.rowsRead());
+    }
+
+    private static Cost editOnce(int conversationSize, boolean clientSendsCreatedAt) {
+        long messageId = MessageIdGenerator.nextId();
+        Instant createdAt = Instant.ofEpochMilli(MessageIdGenerator.timestampMillis(messageId));
+        FakeSession fake = new FakeSession(conversationSize, messageId, createdAt);
+        CassandraMessageStore store = newStore(fake);
+
+        Message m = store.findMessage(CONVERSATION_ID, messageId,
+                        clientSendsCreatedAt ? createdAt.toEpochMilli() : 0L)
+                .orElseThrow();
+        store.editMessage(m, new byte[16], new byte[12], LocalDateTime.now());
+
+        assertTrue(fake.statements > 0);
+        return new Cost(fake.statements, fake.rowsRead);
+    }
+
+    @Test
+    void editDoesNotRewriteSenderIndex() {
+        long messageId = MessageIdGenerator.nextId();
+        Instant createdAt = Instant.ofEpochMilli(MessageIdGenerator.timestampMillis(messageId));
+        FakeSession fake = new FakeSession(10, messageId, createdAt);
+        CassandraMessageStore store = newStore(fake);
+
+        Message m = store.findMessage(CONVERSATION_ID, messageId, createdAt.toEpochMilli()).orElseThrow();
+        store.editMessage(m, new byte[16], new byte[12], LocalDateTime.now());
+
+        assertTrue(fake.executed.stream().noneMatch(cql -> cql.contains("_by_sender")));
+    }
+
+    private static CassandraMessageStore newStore(FakeSession fake) {
+        CassandraMessageStore store = new CassandraMessageStore(fake.session);
+        ReflectionTestUtils.setField(store, "keyspace", "chat");
+        ReflectionTestUtils.setField(store, "bucketedReads", true);
+        ReflectionTestUtils.setField(store, "legacyWrites", true);
+        ReflectionTestUtils.setField(store, "senderKeysMigrating", true);
+        ReflectionTestUtils.setField(store, "textCiphertextWrites", true);
+        return store;
+    }
+
+    private record Cost(int statements, long rowsRead) {}
+
+    /** Counts data statements and the rows the store actually pulls from them. */
+    private static final class FakeSession {
+        final CqlSession session = mock(CqlSession.class);
+        final Map<BoundStatement, String> cqlByStatement = new ConcurrentHashMap<>();
+        final Row row = mock(Row.class);
+        final List<String> executed = new ArrayList<>();
+        final int conversationSize;
+        int statements;
+        long rowsRead;
+
+        FakeSession(int conversationSize, long messageId, Instant createdAt) {
+            this.conversationSize = conversationSize;
+            when(row.getLong("message_id")).thenReturn(messageId);
+            when(row.getLong("conversation_id")).thenReturn(CONVERSATION_ID);
+            when(row.getLong("sender_id")).thenReturn(SENDER_ID);
+            when(row.getInstant("created_at")).thenReturn(createdAt);
+            when(row.getByteBuffer("content_cipher")).thenReturn(ByteBuffer.wrap(new byte[16]));
+            when(row.getByteBuffer("content_iv")).thenReturn(ByteBuffer.wrap(new byte[12]));
+            when(session.prepare(anyString())).thenAnswer(inv -> prepared(inv.getArgument(0)));
+            when(session.execute(any(BoundStatement.class)))
+                    .thenAnswer(inv -> execute(cqlByStatement.get(inv.<BoundStatement>getArgument(0))));
+        }
+
+        private PreparedStatement prepared(String cql) {
+            return mock(PreparedStatement.class, inv -> {
+                if (!inv.getMethod().getName().equals("bind")) {
+                    return null;
+                }
+                BoundStatement bound = mock(BoundStatement.class);
+                cqlByStatement.put(bound, cql);
+                return bound;
+            });
+        }
+
+        private ResultSet execute(String cql) {
+            statements++;
+            executed.add(cql);
+            int rows = !cql.startsWith("SELECT") ? 0
+                    : cql.contains("message_id = ?") ? 1
+                    : conversationSize;
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.one()).thenAnswer(inv -> {
+                if (rows == 0) return null;
+                rowsRead++;
+                return row;
+            });
+            when(rs.iterator()).thenAnswer(inv -> rowsOf(rows));
+            return rs;
+        }
+
+        private Iterator<Row> rowsOf(int count) {
+            return new Iterator<>() {
+                int served;
+
+                @Override
+                public boolean hasNext() {
+                    return served < count;
+                }
+
+                @Override
+                public Row next() {
+                    if (served >= count) throw new NoSuchElementException();
+                    served++;
+                    rowsRead++;
+                    return row;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.serdar.chat.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.serdar.chat.model.Message;
+import com.serdar.chat.service.MessageIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The edit overlay only shows through while it names the current last
+ * message, message write times follow message order, and a rebuild writes
+ * at the time it read MySQL.
+ */
+class InboxProjectionTest {
+
+    private static final long CONVERSATION_ID = 9L;
+    private static final Instant JOINED = Instant.ofEpochMilli(1_000);
+    private static final Instant SENT = Instant.ofEpochMilli(5_000);
+
+    @Test
+    void overlayAppliesToMatchingMessage() {
+        Row row = row(42L, 42L, false);
+
+        Message last = InboxProjection.entryOf(row).lastMessage();
+
+        assertArrayEquals(new byte[]{2}, last.getContentCipher());
+        assertEquals(LocalDateTime.ofInstant(SENT.plusSeconds(1), ZoneOffset.UTC), last.getEditedAt());
+        assertFalse(last.isDeleted());
+    }
+
+    @Test
+    void overlayForAnOlderMessageIsIgnored() {
+        Row row = row(43L, 42L, true);
+
+        Message last = InboxProjection.entryOf(row).lastMessage();
+
+        assertArrayEquals(new byte[]{1}, last.getContentCipher());
+        assertNull(last.getEditedAt());
+        assertFalse(last.isDeleted());
+    }
+
+    @Test
+    void deleteOverlayMarksMessageDeleted() {
+        Row row = row(42L, 42L, true);
+
+        assertTrue(InboxProjection.entryOf(row).lastMessage().isDeleted());
+    }
+
+    @Test
+    void activityIsLastMessageOrJoin() {
+        InboxProjection.Entry entry = InboxProjection.entryOf(row(42L, 0L, false));
+
+        assertEquals(LocalDateTime.ofInstant(SENT, ZoneOffset.UTC), entry.lastActivityAt());
+    }
+
+    @Test
+    void laterMessagesGetLaterWriteTimes() {
+        long first = MessageIdGenerator.nextId();
+        long second = first + 1;
+        long nextMillis = (MessageIdGenerator.timestampMillis(first) + 1) * 1024;
+
+        assertTrue(InboxProjection.writeTimeOf(message(first)) < InboxProjection.writeTimeOf(message(nextMillis)));
+        assertTrue(InboxProjection.writeTimeOf(message(second)) < InboxProjection.writeTimeOf(message(nextMillis)));
+    }
+
+    @Test
+    void rebuildWritesMembershipAtTheReadTime() {
+        CqlSession session = mock(CqlSession.class);
+        List<Object[]> timestamped = new ArrayList<>();
+        when(session.prepare(anyString())).thenAnswer(inv -> {
+            String cql = inv.getArgument(0);
+            PreparedStatement ps = mock(PreparedStatement.class);
+            when(ps.bind(any(Object[].class))).thenAnswer(bind -> {
+                if (cql.contains("USING TIMESTAMP")) timestamped.add(bind.getArguments());
+                return mock(BoundStatement.class);
+            });
+            return ps;
+        });
+        Instant readAt = Instant.ofEpochMilli(20_000);
+        InboxProjection inboxes = new InboxProjection(session, mock(CassandraMessageStore.class));
+
+        inboxes.rebuild(7L, List.of(new InboxProjection.Entry(
+                CONVERSATION_ID, 8L, false, false, LocalDateTime.ofInstant(JOINED, ZoneOffset.UTC), null)), readAt);
+
+        assertEquals(2, timestamped.size());
+        for (Object[] args : timestamped) {
+            assertEquals(TimeUnit.MILLISECONDS.toMicros(readAt.toEpochMilli()), args[0]);
+        }
+    }
+
+    private static Message message(long id) {
+        return Message.builder()
+                .id(id)
+                .conversationId(CONVERSATION_ID)
+                .createdAt(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(MessageIdGenerator.timestampMillis(id)), ZoneOffset.UTC))
+                .build();
+    }
+
+    private static Row row(long lastMessageId, long editedMessageId, boolean editDeletes) {
+        Row row = mock(Row.class);
+        when(row.isNull(anyString())).thenReturn(false);
+        when(row.isNull("edited_message_id")).thenReturn(editedMessageId == 0);
+        when(row.getLong("conversation_id")).thenReturn(CONVERSATION_ID);
+        when(row.getLong("peer_id")).thenReturn(7L);
+        when(row.getInstant("joined_at")).thenReturn(JOINED);
+        when(row.getLong("last_message_id")).thenReturn(lastMessageId);
+        when(row.getLong("last_sender_id")).thenReturn(7L);
+        when(row.getInstant("last_message_at")).thenReturn(SENT);
+        when(row.getByteBuffer("last_cipher")).thenReturn(ByteBuffer.wrap(new byte[]{1}));
+        when(row.getByteBuffer("last_iv")).thenReturn(ByteBuffer.wrap(new byte[]{1}));
+        when(row.getLong("edited_message_id")).thenReturn(editedMessageId);
+        when(row.getByteBuffer("edited_cipher")).thenReturn(editDeletes ? null : ByteBuffer.wrap(new byte[]{2}));
+        when(row.getByteBuffer("edited_iv")).thenReturn(editDeletes ? null : ByteBuffer.wrap(new byte[]{2}));
+        when(row.getInstant("edited_at")).thenReturn(editDeletes ? null : SENT.plusSeconds(1));
+        when(row.getBoolean("edited_deleted")).thenReturn(editDeletes);
+        return row;
+    }
+}
@@ -0,0 +1,88 @@
+package com.serdar.chat.messaging;
+
+import com.serdar.chat.service.StreamRegistry;
+import com.serdar.proto.chat.ChatEvent;
+import com.serdar.proto.chat.ChatEventRelay;
+import com.serdar.proto.chat.RelayedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Relay cost is counted in AMQP messages: a burst of events for the same
+ * instances must collapse into one protobuf message per instance per batch,
+ * with every event and recipient intact and in order.
+ */
+class ChatEventPublisherTest {
+
+    @Test
+    void burstIsPackedIntoOneMessagePerInstancePerBatch() throws Exception {
+        RabbitTemplate rabbit = mock(RabbitTemplate.class);
+        ChatEventPublisher publisher = publisher(rabbit);
+        int events = 1_000;
+        for (int i = 0; i < events; i++) {
+            ChatEvent e = ChatEvent.newBuilder().setType("MESSAGE").setConversationId(i).build();
+            publisher.publish("node-a", List.of(1L, 2L, 3L), e);
+            publisher.publish("node-b", List.of(4L), e);
+        }
+
+        publisher.flush();
+
+        ArgumentCaptor<String> targets = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+        verify(rabbit, atLeastOnce()).send(eq(ChatEventRabbitConfig.EXCHANGE), targets.capture(),
+                messages.capture(), any(CorrelationData.class));
+        int batches = (2 * events + ChatEventPublisher.MAX_BATCH - 1) / ChatEventPublisher.MAX_BATCH;
+        assertEquals(2 * batches, messages.getAllValues().size());
+
+        List<Long> conversationsOnA = new ArrayList<>();
+        for (int i = 0; i < messages.getAllValues().size(); i++) {
+            Message m = messages.getAllValues().get(i);
+            assertEquals(ChatEventPublisher.CONTENT_TYPE, m.getMessageProperties().getContentType());
+            ChatEventRelay relay = ChatEventRelay.parseFrom(m.getBody());
+            assertEquals("self", relay.getOriginId());
+            if (!targets.getAllValues().get(i).equals("node-a")) continue;
+            for (RelayedEvent r : relay.getEventsList()) {
+                assertEquals(List.of(1L, 2L, 3L), r.getUserIdsList());
+                conversationsOnA.add(r.getEvent().getConversationId());
+            }
+        }
+        assertEquals(events, conversationsOnA.size());
+        for (int i = 0; i < events; i++) {
+            assertEquals(i, conversationsOnA.get(i));
+        }
+    }
+
+    @Test
+    void singleEventIsSentAlone() {
+        RabbitTemplate rabbit = mock(RabbitTemplate.class);
+        ChatEventPublisher publisher = publisher(rabbit);
+
+        publisher.publish("node-a", List.of(1L), ChatEvent.newBuilder().setType("TYPING").build());
+        publisher.flush();
+
+        verify(rabbit).send(eq(ChatEventRabbitConfig.EXCHANGE), anyString(), any(Message.class),
+                any(CorrelationData.class));
+    }
+
+    private static ChatEventPublisher publisher(RabbitTemplate rabbit) {
+        StreamRegistry registry = mock(StreamRegistry.class);
+        when(registry.instanceId()).thenReturn("self");
+        return new ChatEventPublisher(rabbit, registry, new SimpleMeterRegistry());
+    }
+}
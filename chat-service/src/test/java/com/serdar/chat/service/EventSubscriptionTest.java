@@ -0,0 +1,193 @@
+package com.serdar.chat.service;
+
+import com.serdar.chat.messaging.ChatEventPublisher;
+import com.serdar.proto.chat.ChatEvent;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A stream that stops reading must not block senders: events queue up, the
+ * superseded ones coalesce, and an overflowing stream is evicted.
+ */
+class EventSubscriptionTest {
+
+    private static final long USER = 7L;
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final AtomicBoolean ready = new AtomicBoolean(false);
+    private final List<ChatEvent> written = new ArrayList<>();
+    private Runnable onReady;
+
+    @SuppressWarnings("unchecked")
+    private ServerCallStreamObserver<ChatEvent> stream() {
+        ServerCallStreamObserver<ChatEvent> out = mock(ServerCallStreamObserver.class);
+        when(out.isReady()).thenAnswer(inv -> ready.get());
+        doAnswer(inv -> { onReady = inv.getArgument(0); return null; }).when(out).setOnReadyHandler(any());
+        doAnswer(inv -> { written.add(inv.getArgument(0)); return null; }).when(out).onNext(any());
+        return out;
+    }
+
+    private final StreamRegistry registry = mock(StreamRegistry.class);
+
+    @SuppressWarnings("unchecked")
+    private EventBroker broker(int capacity, EventSubscription.SlowConsumerPolicy policy) {
+        ObjectProvider<ChatEventPublisher> publisher = mock(ObjectProvider.class);
+        return new EventBroker(publisher, registry, meters, false, capacity, policy);
+    }
+
+    private static ChatEvent typing(long conversationId, long subject) {
+        return ChatEvent.newBuilder().setType("TYPING").setConversationId(conversationId).setSubjectUserId(subject).build();
+    }
+
+    private static ChatEvent unread(long conversationId, int count) {
+        return ChatEvent.newBuilder().setType("UNREAD_COUNT_UPDATE").setConversationId(conversationId)
+                .setUnreadCount(count).build();
+    }
+
+    private static ChatEvent message(long conversationId) {
+        return ChatEvent.newBuilder().setType("MESSAGE").setConversationId(conversationId).build();
+    }
+
+    @Test
+    void slowStreamQueuesAndCoalescesUntilReady() {
+        EventBroker broker = broker(100, EventSubscription.SlowConsumerPolicy.DISCONNECT);
+        broker.subscribe(USER, stream(), () -> {});
+
+        for (int i = 1; i <= 50; i++) {
+            broker.sendTo(USER, typing(1, 2));
+            broker.sendTo(USER, unread(1, i));
+        }
+        broker.sendTo(USER, message(1));
+
+        assertTrue(written.isEmpty(), "nothing may be written while the transport is not ready");
+        assertEquals(3.0, meters.get("chat.events.queue.depth").gauge().value());
+
+        ready.set(true);
+        onReady.run();
+
+        assertEquals(List.of("TYPING", "UNREAD_COUNT_UPDATE", "MESSAGE"),
+                written.stream().map(ChatEvent::getType).toList());
+        assertEquals(50, written.get(1).getUnreadCount());
+        assertEquals(0.0, meters.get("chat.events.queue.depth").gauge().value());
+        assertEquals(98.0, meters.get("chat.events.coalesced").counter().count());
+    }
+
+    @Test
+    void coalescedUnreadUpdateKeepsTheQueuedTotal() {
+        EventBroker broker = broker(100, EventSubscription.SlowConsumerPolicy.DISCONNECT);
+        broker.subscribe(USER, stream(), () -> {});
+
+        broker.sendTo(USER, unread(1, 0).toBuilder().setTotalUnreadCount(4).build());
+        broker.sendTo(USER, unread(1, 1));
+        ready.set(true);
+        onReady.run();
+
+        assertEquals(1, written.size());
+        assertEquals(1, written.get(0).getUnreadCount());
+        assertTrue(written.get(0).hasTotalUnreadCount());
+        assertEquals(4, written.get(0).getTotalUnreadCount());
+    }
+
+    @Test
+    void overflowingStreamIsEvicted() {
+        EventBroker broker = broker(3, EventSubscription.SlowConsumerPolicy.DISCONNECT);
+        ServerCallStreamObserver<ChatEvent> out = stream();
+        AtomicInteger evictions = new AtomicInteger();
+        broker.subscribe(USER, out, evictions::incrementAndGet);
+
+        for (int i = 0; i < 4; i++) broker.sendTo(USER, message(i));
+
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        verify(out).onError(error.capture());
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, Status.fromThrowable(error.getValue()).getCode());
+        assertEquals(1, evictions.get());
+        assertFalse(broker.isOnline(USER));
+        assertEquals(1.0, meters.get("chat.events.evicted").counter().count());
+    }
+
+    @Test
+    void overflowDuringAWriteFailsTheStreamAfterTheWriteReturns() throws Exception {
+        EventBroker broker = broker(2, EventSubscription.SlowConsumerPolicy.DISCONNECT);
+        ServerCallStreamObserver<ChatEvent> out = stream();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            writing.countDown();
+            release.await();
+            return null;
+        }).when(out).onNext(any());
+        broker.subscribe(USER, out, () -> {});
+        ready.set(true);
+
+        Thread writer = new Thread(() -> broker.sendTo(USER, message(0)));
+        writer.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= 3; i++) broker.sendTo(USER, message(i));
+        verify(out, never()).onError(any());
+        assertFalse(broker.isOnline(USER));
+
+        release.countDown();
+        writer.join(5_000);
+        assertFalse(writer.isAlive());
+
+        InOrder order = inOrder(out);
+        order.verify(out).onNext(any());
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        order.verify(out).onError(error.capture());
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, Status.fromThrowable(error.getValue()).getCode());
+    }
+
+    @Test
+    void claimIsReleasedOnlyWithTheLastStream() {
+        EventBroker broker = broker(10, EventSubscription.SlowConsumerPolicy.DISCONNECT);
+        EventSubscription first = broker.subscribe(USER, stream(), () -> {});
+        EventSubscription second = broker.subscribe(USER, stream(), () -> {});
+
+        broker.unsubscribe(first);
+        broker.unsubscribe(first);
+        assertTrue(broker.isOnline(USER));
+        verify(registry, never()).release(USER);
+
+        broker.unsubscribe(second);
+        assertFalse(broker.isOnline(USER));
+        verify(registry).release(USER);
+    }
+
+    @Test
+    void dropOldestKeepsTheStreamAndTheNewestEvents() {
+        EventBroker broker = broker(2, EventSubscription.SlowConsumerPolicy.DROP_OLDEST);
+        broker.subscribe(USER, stream(), () -> {});
+
+        for (int i = 1; i <= 4; i++) broker.sendTo(USER, message(i));
+        ready.set(true);
+        onReady.run();
+
+        assertTrue(broker.isOnline(USER));
+        assertEquals(List.of(3L, 4L), written.stream().map(ChatEvent::getConversationId).toList());
+        assertEquals(2.0, meters.get("chat.events.dropped").counter().count());
+    }
+}
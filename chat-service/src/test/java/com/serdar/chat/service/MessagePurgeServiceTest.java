@@ -0,0 +1,64 @@
+package com.serdar.chat.service;
+
+import com.serdar.chat.cache.RecentMessageCache;
+import com.serdar.chat.entity.MessagePurge;
+import com.serdar.chat.repository.MessagePurgeRepository;
+import com.serdar.chat.repository.MessageStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A running purge saves its progress after every batch, which also keeps
+ * its row from looking abandoned to other instances.
+ */
+class MessagePurgeServiceTest {
+
+    private final MessagePurgeRepository purges = mock(MessagePurgeRepository.class);
+    private final MessageStore messages = mock(MessageStore.class);
+    private final MessagePurgeService service =
+            new MessagePurgeService(purges, messages, mock(RecentMessageCache.class));
+
+    @Test
+    void progressIsSavedAfterEachBatch() {
+        MessagePurge purge = MessagePurge.builder()
+                .id(1L)
+                .kind(MessagePurge.Kind.SENDER)
+                .conversationId(5L)
+                .senderId(7L)
+                .status(MessagePurge.Status.PENDING)
+                .attempts(0)
+                .itemsDone(0L)
+                .updatedAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+        when(purges.findTop20ByStatusOrderByIdAsc(MessagePurge.Status.PENDING)).thenReturn(List.of(purge));
+        when(purges.findTop20ByStatusAndUpdatedAtBeforeOrderByIdAsc(any(), any())).thenReturn(List.of());
+        when(purges.claim(eq(1L), any(), any(), any(), any())).thenReturn(1);
+        when(messages.deleteBySenderInConversation(eq(5L), eq(7L), any())).thenAnswer(inv -> {
+            IntConsumer progress = inv.getArgument(2);
+            progress.accept(500);
+            progress.accept(700);
+            return 700;
+        });
+        List<String> saved = new ArrayList<>();
+        doAnswer(inv -> {
+            MessagePurge p = inv.getArgument(0);
+            saved.add(p.getStatus() + ":" + p.getItemsDone());
+            return p;
+        }).when(purges).save(any());
+
+        service.drain();
+
+        assertEquals(List.of("RUNNING:500", "RUNNING:700", "DONE:700"), saved);
+    }
+}
@@ -0,0 +1,66 @@
+package com.serdar.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Large pages are spread over the pool but come back in input order; small
+ * pages never leave the calling thread.
+ */
+class PageDecryptorTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final PageDecryptor decryptor = new PageDecryptor(4, meters);
+
+    @AfterEach
+    void stop() {
+        decryptor.shutdown();
+    }
+
+    @Test
+    void largePageKeepsOrderAcrossThreads() {
+        List<Integer> page = IntStream.range(0, 200).boxed().toList();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        List<String> out = decryptor.map(page, i -> {
+            threads.add(Thread.currentThread().getName());
+            return "m" + i;
+        });
+
+        assertEquals(page.stream().map(i -> "m" + i).toList(), out);
+        assertTrue(threads.size() > 1);
+        assertEquals(200 / PageDecryptor.CHUNK + 1, meters.timer("chat.decrypt.chunk").count());
+    }
+
+    @Test
+    void smallPageRunsInline() {
+        String caller = Thread.currentThread().getName();
+        List<Integer> page = IntStream.range(0, PageDecryptor.INLINE_MAX).boxed().toList();
+
+        List<String> out = decryptor.map(page, i -> Thread.currentThread().getName());
+
+        assertTrue(out.stream().allMatch(caller::equals));
+        assertEquals(1, meters.counter("chat.decrypt.inline.pages").count());
+    }
+
+    @Test
+    void failureInAWorkerReachesTheCaller() {
+        List<Integer> page = IntStream.range(0, 100).boxed().toList();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> decryptor.map(page, i -> {
+            if (i == 90) throw new RuntimeException("decrypt failed");
+            return i;
+        }));
+        assertEquals("decrypt failed", e.getMessage());
+    }
+}
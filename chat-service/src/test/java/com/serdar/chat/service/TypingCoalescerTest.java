@@ -0,0 +1,44 @@
+package com.serdar.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Repeated typing reports inside the window collapse into the first one;
+ * other users and conversations are throttled independently.
+ */
+class TypingCoalescerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final TypingCoalescer typing = new TypingCoalescer(2_000, meters, now::get);
+
+    @Test
+    void oneEventPerWindow() {
+        assertTrue(typing.tryEmit(1, 10));
+        for (int i = 0; i < 9; i++) {
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+            assertFalse(typing.tryEmit(1, 10));
+        }
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(650));
+        assertTrue(typing.tryEmit(1, 10));
+
+        assertEquals(2, meters.counter("chat.typing.emitted").count());
+        assertEquals(9, meters.counter("chat.typing.suppressed").count());
+    }
+
+    @Test
+    void keysAreIndependent() {
+        assertTrue(typing.tryEmit(1, 10));
+        assertTrue(typing.tryEmit(1, 11));
+        assertTrue(typing.tryEmit(2, 10));
+        assertFalse(typing.tryEmit(1, 10));
+    }
+}
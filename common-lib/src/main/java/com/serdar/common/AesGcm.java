@@ -5,6 +5,8 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
 
@@ -12,16 +14,25 @@ import java.util.Base64;
  * AES-256-GCM helper with 96-bit IV + 128-bit auth tag.
  * Lifted from the monolith's AesGcmService so chat-service (and anyone else
  * that needs it) can reuse it without duplicating crypto code.
+ *
+ * Each thread keeps its own {@link Cipher}; it is re-initialised with a fresh
+ * IV on every call, which also resets it after a failed decrypt, so only the
+ * provider lookup is saved, never key or IV state.
  */
 public final class AesGcm {
 
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
     private static final int IV_LEN = 12;
     private static final int TAG_BITS = 128;
     private static final SecureRandom RNG = new SecureRandom();
 
     public record Enc(String ivB64, String cipherB64) {}
 
+    /** Raw IV and ciphertext (tag appended), for binary storage. */
+    public record Sealed(byte[] iv, byte[] cipher) {}
+
     private final SecretKey key;
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(AesGcm::newCipher);
 
     public AesGcm(String base64Key) {
         byte[] raw = Base64.getDecoder().decode(base64Key);
@@ -29,34 +40,56 @@ public final class AesGcm {
         this.key = new SecretKeySpec(raw, "AES");
     }
 
-    public Enc encrypt(String plaintext, byte[] aad) {
+    public Sealed seal(String plaintext, byte[] aad) {
         try {
             byte[] iv = new byte[IV_LEN];
             RNG.nextBytes(iv);
-            Cipher c = Cipher.getInstance("AES/GCM/NoPadding");
+            Cipher c = ciphers.get();
             c.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
             if (aad != null) c.updateAAD(aad);
-            byte[] ct = c.doFinal(plaintext.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-            return new Enc(Base64.getEncoder().encodeToString(iv), Base64.getEncoder().encodeToString(ct));
+            return new Sealed(iv, c.doFinal(plaintext.getBytes(StandardCharsets.UTF_8)));
         } catch (Exception e) {
             throw new RuntimeException("encrypt failed", e);
         }
     }
 
-    public String decrypt(String ivB64, String cipherB64, byte[] aad) {
+    public String open(byte[] iv, byte[] cipher, byte[] aad) {
         try {
-            byte[] iv = Base64.getDecoder().decode(ivB64);
-            byte[] ct = Base64.getDecoder().decode(cipherB64);
-            Cipher c = Cipher.getInstance("AES/GCM/NoPadding");
+            Cipher c = ciphers.get();
             c.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
             if (aad != null) c.updateAAD(aad);
-            return new String(c.doFinal(ct), java.nio.charset.StandardCharsets.UTF_8);
+            return new String(c.doFinal(cipher), StandardCharsets.UTF_8);
         } catch (Exception e) {
             throw new RuntimeException("decrypt failed", e);
         }
     }
 
+    public Enc encrypt(String plaintext, byte[] aad) {
+        Sealed s = seal(plaintext, aad);
+        return new Enc(Base64.getEncoder().encodeToString(s.iv()), Base64.getEncoder().encodeToString(s.cipher()));
+    }
+
+    public String decrypt(String ivB64, String cipherB64, byte[] aad) {
+        byte[] iv;
+        byte[] ct;
+        try {
+            iv = Base64.getDecoder().decode(ivB64);
+            ct = Base64.getDecoder().decode(cipherB64);
+        } catch (Exception e) {
+            throw new RuntimeException("decrypt failed", e);
+        }
+        return open(iv, ct, aad);
+    }
+
     public static byte[] aad(long conversationId, long senderId) {
         return ByteBuffer.allocate(16).putLong(conversationId).putLong(senderId).array();
     }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(TRANSFORMATION + " is not available", e);
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package com.serdar.common.cache;
+
+/**
+ * Published by auth-service on the {@link #EXCHANGE} fanout after a freeze or
+ * unfreeze commits; every {@link FrozenStateCache} holder applies it at once
+ * instead of waiting for its entry to expire.
+ */
+public record AccountFrozenEvent(long userId, boolean frozen) {
+
+    public static final String EXCHANGE = "auth.account-frozen.exchange";
+}
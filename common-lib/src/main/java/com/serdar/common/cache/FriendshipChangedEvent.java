@@ -0,0 +1,11 @@
+package com.serdar.common.cache;
+
+/**
+ * Published by user-service on the {@link #EXCHANGE} fanout after a friendship
+ * between {@code userA} and {@code userB} is created ({@code friends = true})
+ * or removed, so chat-service can patch cached presence audiences in place.
+ */
+public record FriendshipChangedEvent(long userA, long userB, boolean friends) {
+
+    public static final String EXCHANGE = "user.friendship.exchange";
+}
@@ -0,0 +1,130 @@
+package com.serdar.common.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+
+/**
+ * In-process view of which accounts are frozen, for the services that gate
+ * actions and listings on it.
+ *
+ * Entries live for a short TTL so a missed {@link AccountFrozenEvent} heals on
+ * its own; the events make the normal case immediate. Every event takes a
+ * version from a counter, and a loader result is only stored if no event for
+ * that id arrived after the load started, so a lookup in flight cannot
+ * overwrite a newer event with what auth-service said before it. The map is
+ * bounded and is simply cleared when full. Loader failures are never cached,
+ * so callers keep their own fail-open / fail-closed policy.
+ */
+public final class FrozenStateCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(60);
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private record Entry(boolean frozen, long expiresAtNanos, long version) {}
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    // Version at the last clear; loads that started before it may have missed a dropped event.
+    private volatile long clearedAt;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    public FrozenStateCache() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    public FrozenStateCache(Duration ttl, int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isFrozen(long userId, LongPredicate loader) {
+        Entry e = fresh(userId, System.nanoTime());
+        if (e != null) return e.frozen();
+        long stamp = loadStamp();
+        boolean frozen = loader.test(userId);
+        putLoaded(userId, frozen, stamp);
+        return frozen;
+    }
+
+    /**
+     * Frozen subset of {@code userIds}. Misses are resolved with a single
+     * {@code loader} call, which must return the frozen subset of the ids it is given.
+     */
+    public Set<Long> frozenAmong(Collection<Long> userIds, Function<Collection<Long>, Set<Long>> loader) {
+        Set<Long> frozen = new HashSet<>();
+        List<Long> misses = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Long id : userIds) {
+            Entry e = fresh(id, now);
+            if (e == null) misses.add(id);
+            else if (e.frozen()) frozen.add(id);
+        }
+        if (!misses.isEmpty()) {
+            long stamp = loadStamp();
+            Set<Long> loaded = loader.apply(misses);
+            for (Long id : misses) {
+                boolean f = loaded.contains(id);
+                putLoaded(id, f, stamp);
+                if (f) frozen.add(id);
+            }
+        }
+        return frozen;
+    }
+
+    /** The cached state, or null if it is unknown or expired. */
+    public Boolean cached(long userId) {
+        Entry e = fresh(userId, System.nanoTime());
+        return e == null ? null : e.frozen();
+    }
+
+    /** Stores a known state, superseding any load in flight for the id. */
+    public void put(long userId, boolean frozen) {
+        trimIfFull();
+        entries.put(userId, new Entry(frozen, System.nanoTime() + ttlNanos, versions.incrementAndGet()));
+    }
+
+    /** Taken before asking the loader; pass it to {@link #putLoaded} with the answer. */
+    public long loadStamp() {
+        return versions.get();
+    }
+
+    /** Stores a loaded state unless an event for the id arrived after {@code stamp} was taken. */
+    public void putLoaded(long userId, boolean frozen, long stamp) {
+        if (stamp < clearedAt) return;
+        trimIfFull();
+        entries.compute(userId, (id, old) -> old != null && old.version() > stamp
+                ? old
+                : new Entry(frozen, System.nanoTime() + ttlNanos, old == null ? 0 : old.version()));
+    }
+
+    /** Forgets the state; a load already in flight is not stored either. */
+    public void invalidate(long userId) {
+        entries.put(userId, new Entry(false, System.nanoTime(), versions.incrementAndGet()));
+    }
+
+    public void apply(AccountFrozenEvent event) {
+        put(event.userId(), event.frozen());
+    }
+
+    private void trimIfFull() {
+        if (entries.size() >= maxEntries) {
+            clearedAt = versions.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    private Entry fresh(long userId, long now) {
+        Entry e = entries.get(userId);
+        return e != null && now - e.expiresAtNanos() < 0 ? e : null;
+    }
+}
@@ -63,6 +63,7 @@ public final class GrpcGatewayActorRules {
             Map.entry("com.serdar.proto.user.UserService/BlockStatus", new ActorRule("caller_id", false)),
             Map.entry("com.serdar.proto.user.UserService/IsBlockedEitherWay", new ActorRule("caller_id", false)),
             Map.entry("com.serdar.proto.user.UserService/MyBlocks", new ActorRule("id", false)),
+            Map.entry("com.serdar.proto.user.UserService/ViewersBlockingSender", new ActorRule("sender_id", false)),
             Map.entry("com.serdar.proto.user.UserService/SearchUsers", new ActorRule("caller_id", false)),
 
             // auth-service
@@ -0,0 +1,60 @@
+package com.serdar.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AesGcmTest {
+
+    private final AesGcm aes = new AesGcm(Base64.getEncoder().encodeToString(new byte[32]));
+
+    @Test
+    void cachedCipherSurvivesFailedDecrypt() {
+        byte[] aad = AesGcm.aad(1, 2);
+        AesGcm.Sealed first = aes.seal("hello", aad);
+        AesGcm.Sealed second = aes.seal("world", aad);
+
+        assertThrows(RuntimeException.class, () -> aes.open(first.iv(), first.cipher(), AesGcm.aad(1, 3)));
+
+        assertEquals("hello", aes.open(first.iv(), first.cipher(), aad));
+        assertEquals("world", aes.open(second.iv(), second.cipher(), aad));
+    }
+
+    @Test
+    void base64AndRawFormsAreInterchangeable() {
+        byte[] aad = AesGcm.aad(4, 5);
+        AesGcm.Enc enc = aes.encrypt("héllo", aad);
+
+        assertEquals("héllo", aes.open(Base64.getDecoder().decode(enc.ivB64()),
+                Base64.getDecoder().decode(enc.cipherB64()), aad));
+    }
+
+    @Test
+    void threadsDoNotShareCipherState() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long conversationId = t;
+                runs.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        byte[] aad = AesGcm.aad(conversationId, i);
+                        AesGcm.Sealed s = aes.seal("m" + i, aad);
+                        assertEquals("m" + i, aes.open(s.iv(), s.cipher(), aad));
+                    }
+                }));
+            }
+            for (Future<?> run : runs) run.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
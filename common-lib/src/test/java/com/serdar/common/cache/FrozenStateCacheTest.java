@@ -0,0 +1,79 @@
+package com.serdar.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrozenStateCacheTest {
+
+    @Test
+    void batchLookupLoadsOnlyMissesInOneCall() {
+        FrozenStateCache cache = new FrozenStateCache();
+        cache.put(1L, true);
+        cache.put(2L, false);
+        List<Collection<Long>> calls = new ArrayList<>();
+
+        Set<Long> frozen = cache.frozenAmong(List.of(1L, 2L, 3L, 4L), ids -> {
+            calls.add(List.copyOf(ids));
+            return new HashSet<>(Set.of(4L));
+        });
+
+        assertEquals(Set.of(1L, 4L), frozen);
+        assertEquals(List.of(List.of(3L, 4L)), calls);
+        assertTrue(cache.isFrozen(4L, id -> { throw new AssertionError("should be cached"); }));
+    }
+
+    @Test
+    void eventOverridesCachedValue() {
+        FrozenStateCache cache = new FrozenStateCache();
+        assertFalse(cache.isFrozen(7L, id -> false));
+
+        cache.apply(new AccountFrozenEvent(7L, true));
+
+        assertTrue(cache.isFrozen(7L, id -> { throw new AssertionError("should be cached"); }));
+    }
+
+    @Test
+    void eventDuringALoadIsNotOverwritten() {
+        FrozenStateCache cache = new FrozenStateCache();
+
+        assertFalse(cache.isFrozen(7L, id -> {
+            cache.apply(new AccountFrozenEvent(7L, true));
+            return false;
+        }));
+        assertTrue(cache.isFrozen(7L, id -> { throw new AssertionError("should be cached"); }));
+
+        Set<Long> frozen = cache.frozenAmong(List.of(8L, 9L), ids -> {
+            cache.apply(new AccountFrozenEvent(8L, true));
+            return new HashSet<>();
+        });
+        assertEquals(Set.of(), frozen);
+        assertEquals(Boolean.TRUE, cache.cached(8L));
+        assertEquals(Boolean.FALSE, cache.cached(9L));
+    }
+
+    @Test
+    void expiredEntriesAndFailuresAreReloaded() {
+        FrozenStateCache cache = new FrozenStateCache(Duration.ZERO, 10);
+        AtomicInteger loads = new AtomicInteger();
+        cache.isFrozen(5L, id -> { loads.incrementAndGet(); return false; });
+        cache.isFrozen(5L, id -> { loads.incrementAndGet(); return false; });
+        assertEquals(2, loads.get());
+
+        FrozenStateCache fresh = new FrozenStateCache();
+        assertThrows(IllegalStateException.class,
+                () -> fresh.isFrozen(6L, id -> { throw new IllegalStateException("auth down"); }));
+        assertTrue(fresh.isFrozen(6L, id -> true));
+    }
+}
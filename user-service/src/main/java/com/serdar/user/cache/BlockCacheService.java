@@ -3,15 +3,26 @@ package com.serdar.user.cache;
 import com.serdar.user.entity.UserBlock;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Block lists in Redis sets. The {@code blocks-me} set caches "nobody" as
+ * well, so it is only ever written whole: a load stores its result only if
+ * the set's version, bumped after every committed block or unblock of that
+ * user, is still the one it read before going to MySQL.
+ */
 @Service
 @RequiredArgsConstructor
 public class BlockCacheService {
@@ -19,6 +30,23 @@ public class BlockCacheService {
     private static final Duration TTL = Duration.ofHours(24);
     private static final String BY_ME = "blocks:by-me:";
     private static final String BLOCKS_ME = "blocks:blocks-me:";
+    private static final String BLOCKS_ME_VERSION = "blocks:blocks-me-version:";
+    /**
+     * Member stored in an otherwise empty {@code blocks-me} set so "nobody blocks
+     * this user" is cached too; user ids are always positive.
+     */
+    private static final String NONE = "0";
+
+    /** KEYS: set, version. ARGV: version read before loading, TTL seconds, members. Returns 1 if stored. */
+    private static final RedisScript<Long> STORE_IF_UNCHANGED = new DefaultRedisScript<>("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then
+              return 0
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('SADD', KEYS[1], unpack(ARGV, 3))
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
 
     private final StringRedisTemplate redis;
 
@@ -42,15 +70,16 @@ public class BlockCacheService {
         String key = BLOCKS_ME + userId;
         Set<String> cached = redis.opsForSet().members(key);
         if (cached != null && !cached.isEmpty()) {
-            return cached.stream().map(Long::valueOf).collect(Collectors.toSet());
+            return cached.stream().filter(v -> !NONE.equals(v)).map(Long::valueOf).collect(Collectors.toSet());
         }
+        String version = redis.opsForValue().get(BLOCKS_ME_VERSION + userId);
         List<Long> rows = fallback.get();
-        if (rows.isEmpty()) {
-            return Set.of();
-        }
-        String[] values = rows.stream().map(String::valueOf).toArray(String[]::new);
-        redis.opsForSet().add(key, values);
-        redis.expire(key, TTL);
+        List<String> args = new ArrayList<>(rows.size() + 2);
+        args.add(version == null ? "0" : version);
+        args.add(String.valueOf(TTL.toSeconds()));
+        if (rows.isEmpty()) args.add(NONE);
+        else rows.forEach(id -> args.add(String.valueOf(id)));
+        redis.execute(STORE_IF_UNCHANGED, List.of(key, BLOCKS_ME_VERSION + userId), args.toArray());
         return new HashSet<>(rows);
     }
 
@@ -61,8 +90,29 @@ public class BlockCacheService {
 
     public void warmBlock(long blockerId, long blockedId) {
         redis.opsForSet().add(BY_ME + blockerId, String.valueOf(blockedId));
-        redis.opsForSet().add(BLOCKS_ME + blockedId, String.valueOf(blockerId));
         redis.expire(BY_ME + blockerId, TTL);
-        redis.expire(BLOCKS_ME + blockedId, TTL);
+    }
+
+    /**
+     * Drops the blocked user's {@code blocks-me} set once the surrounding
+     * transaction commits, and bumps its version so a load that read MySQL
+     * before the commit does not store its result.
+     */
+    public void invalidateBlocksMeAfterCommit(long blockedId) {
+        Runnable drop = () -> {
+            redis.opsForValue().increment(BLOCKS_ME_VERSION + blockedId);
+            redis.expire(BLOCKS_ME_VERSION + blockedId, TTL.multipliedBy(2));
+            redis.delete(BLOCKS_ME + blockedId);
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            drop.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                drop.run();
+            }
+        });
     }
 }
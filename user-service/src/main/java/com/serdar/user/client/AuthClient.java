@@ -1,15 +1,23 @@
 package com.serdar.user.client;
 
+import com.serdar.common.cache.AccountFrozenEvent;
+import com.serdar.common.cache.FrozenStateCache;
 import com.serdar.proto.auth.*;
+import com.serdar.proto.common.IdList;
 import com.serdar.proto.common.IdRequest;
 import com.serdar.proto.common.StringRequest;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Thin wrapper over auth-service's gRPC stub. We proxy the handful of calls
  * user-service needs (uniqueness checks, credential mutations) rather than
- * passing the generated stub around directly.
+ * passing the generated stub around directly. Frozen-state lookups go through
+ * a short-lived local cache kept current by auth-service's freeze events.
  */
 @Component
 public class AuthClient {
@@ -17,6 +25,8 @@ public class AuthClient {
     @GrpcClient("auth-service")
     private AuthServiceGrpc.AuthServiceBlockingStub stub;
 
+    private final FrozenStateCache frozen = new FrozenStateCache();
+
     public boolean isEmailTaken(String email) {
         return stub.isEmailTaken(StringRequest.newBuilder().setValue(email).build()).getValue();
     }
@@ -34,6 +44,18 @@ public class AuthClient {
     }
 
     public boolean isFrozen(long userId) {
-        return stub.getCredentialsById(IdRequest.newBuilder().setId(userId).build()).getFrozen();
+        return frozen.isFrozen(userId,
+                id -> stub.getCredentialsById(IdRequest.newBuilder().setId(id).build()).getFrozen());
+    }
+
+    /** Frozen subset of {@code userIds}, with at most one auth-service call for the cache misses. */
+    public Set<Long> frozenAmong(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return Set.of();
+        return frozen.frozenAmong(userIds, ids -> new HashSet<>(
+                stub.getFrozenStates(IdList.newBuilder().addAllIds(ids).build()).getIdsList()));
+    }
+
+    public void onFrozenChanged(AccountFrozenEvent event) {
+        frozen.apply(event);
     }
 }
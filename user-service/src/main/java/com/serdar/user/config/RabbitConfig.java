@@ -0,0 +1,45 @@
+package com.serdar.user.config;
+
+import com.serdar.common.cache.AccountFrozenEvent;
+import com.serdar.common.cache.FriendshipChangedEvent;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AMQP wiring. User-service listens for auth-service's frozen-state events —
+ * each instance binds its own anonymous queue to the fanout so every local
+ * cache hears every change — and publishes friendship changes for
+ * chat-service. Both exchanges are declared on each side so whichever service
+ * boots first creates them.
+ */
+@Configuration
+public class RabbitConfig {
+
+    @Bean
+    public FanoutExchange accountFrozenExchange() {
+        return ExchangeBuilder.fanoutExchange(AccountFrozenEvent.EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public Queue accountFrozenQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding accountFrozenBinding(Queue accountFrozenQueue, FanoutExchange accountFrozenExchange) {
+        return BindingBuilder.bind(accountFrozenQueue).to(accountFrozenExchange);
+    }
+
+    @Bean
+    public FanoutExchange friendshipChangedExchange() {
+        return ExchangeBuilder.fanoutExchange(FriendshipChangedEvent.EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public MessageConverter rabbitMessageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+}
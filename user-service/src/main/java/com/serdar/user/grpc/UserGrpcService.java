@@ -24,7 +24,9 @@ import lombok.RequiredArgsConstructor;
 import net.devh.boot.grpc.server.service.GrpcService;
 
 import java.time.ZoneOffset;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @GrpcService
 @RequiredArgsConstructor
@@ -289,8 +291,10 @@ public class UserGrpcService extends UserServiceGrpc.UserServiceImplBase {
     public void myBlocks(IdRequest req, StreamObserver<BlockList> out) {
         guard(out, () -> {
             BlockList.Builder b = BlockList.newBuilder();
-            for (UserBlock block : blockService.myBlocks(req.getId())) {
-                if (authClient.isFrozen(block.getBlockedId())) continue;
+            List<UserBlock> blocks = blockService.myBlocks(req.getId());
+            Set<Long> frozen = authClient.frozenAmong(blocks.stream().map(UserBlock::getBlockedId).toList());
+            for (UserBlock block : blocks) {
+                if (frozen.contains(block.getBlockedId())) continue;
                 UserProfile target = profileService.getById(block.getBlockedId());
                 b.addBlocks(Block.newBuilder()
                         .setId(block.getId())
@@ -321,6 +325,15 @@ public class UserGrpcService extends UserServiceGrpc.UserServiceImplBase {
         out.onCompleted();
     }
 
+    @Override
+    public void viewersBlockingSender(ViewersBlockingSenderRequest req, StreamObserver<IdList> out) {
+        guard(out, () -> {
+            out.onNext(IdList.newBuilder()
+                    .addAllIds(blockService.viewersBlocking(req.getSenderId(), req.getViewerIdsList())).build());
+            out.onCompleted();
+        });
+    }
+
     // ---- search ------------------------------------------------------------
 
     @Override
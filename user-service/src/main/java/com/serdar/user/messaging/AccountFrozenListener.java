@@ -0,0 +1,19 @@
+package com.serdar.user.messaging;
+
+import com.serdar.common.cache.AccountFrozenEvent;
+import com.serdar.user.client.AuthClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class AccountFrozenListener {
+
+    private final AuthClient authClient;
+
+    @RabbitListener(queues = "#{accountFrozenQueue.name}")
+    public void onFrozenChanged(AccountFrozenEvent event) {
+        authClient.onFrozenChanged(event);
+    }
+}
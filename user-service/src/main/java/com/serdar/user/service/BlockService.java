@@ -14,9 +14,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Blocks are strictly directional in storage, but most predicates care about
@@ -32,6 +34,7 @@ public class BlockService {
     private final FriendshipRepository friendships;
     private final FriendRequestRepository requests;
     private final BlockCacheService cache;
+    private final FriendshipEventPublisher friendshipEvents;
 
     @Transactional
     public void block(long blockerId, long blockedId) {
@@ -44,9 +47,13 @@ public class BlockService {
                 .createdAt(LocalDateTime.now())
                 .build());
         cache.warmBlock(blockerId, blockedId);
+        cache.invalidateBlocksMeAfterCommit(blockedId);
 
         // Tear down friendship if present.
-        friendships.findByUsers(blockerId, blockedId).ifPresent(friendships::delete);
+        friendships.findByUsers(blockerId, blockedId).ifPresent(f -> {
+            friendships.delete(f);
+            friendshipEvents.changedAfterCommit(blockerId, blockedId, false);
+        });
 
         // Drop any pending requests between the two.
         requests.findByFromUserIdAndToUserIdAndStatus(blockerId, blockedId, FriendRequest.Status.PENDING)
@@ -59,6 +66,7 @@ public class BlockService {
     public void unblock(long blockerId, long blockedId) {
         blocks.deleteByBlockerIdAndBlockedId(blockerId, blockedId);
         cache.evict(blockerId, blockedId);
+        cache.invalidateBlocksMeAfterCommit(blockedId);
     }
 
     public boolean blockedByMe(long me, long other) {
@@ -87,6 +95,18 @@ public class BlockService {
         return new ArrayList<>(cache.whoBlocksMeIds(userId, () -> blocks.findAllBlockerIdsOf(userId)));
     }
 
+    /** Which of {@code viewerIds} have blocked {@code senderId}: one cache read for the whole list. */
+    public List<Long> viewersBlocking(long senderId, Collection<Long> viewerIds) {
+        if (viewerIds.isEmpty()) return List.of();
+        Set<Long> blockers = cache.whoBlocksMeIds(senderId, () -> blocks.findAllBlockerIdsOf(senderId));
+        if (blockers.isEmpty()) return List.of();
+        List<Long> out = new ArrayList<>();
+        for (Long viewerId : viewerIds) {
+            if (viewerId != senderId && blockers.contains(viewerId)) out.add(viewerId);
+        }
+        return out;
+    }
+
     /** Convenience delete used when friendship removal already handled elsewhere. */
     public Optional<UserBlock> find(long blockerId, long blockedId) {
         return blocks.findByBlockerIdAndBlockedId(blockerId, blockedId);
@@ -94,5 +114,6 @@ public class BlockService {
 
     public void removeFriendshipIfAny(Friendship f) {
         friendships.delete(f);
+        friendshipEvents.changedAfterCommit(f.getUser1Id(), f.getUser2Id(), false);
     }
 }
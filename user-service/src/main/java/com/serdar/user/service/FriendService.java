@@ -16,6 +16,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Friendship + friend-request logic — preserves the monolith's semantics:
@@ -32,6 +33,7 @@ public class FriendService {
     private final UserProfileRepository users;
     private final BlockService blockService;
     private final AuthClient authClient;
+    private final FriendshipEventPublisher friendshipEvents;
 
     // --- friendships --------------------------------------------------------
 
@@ -40,25 +42,26 @@ public class FriendService {
     }
 
     public List<UserProfile> listFriends(long userId) {
-        List<Friendship> list = friendships.findFriendshipsOfUser(userId);
-        return list.stream()
-                .map(f -> f.getUser1Id().equals(userId) ? f.getUser2Id() : f.getUser1Id())
-                .filter(id -> !authClient.isFrozen(id))
+        return listFriendIds(userId).stream()
                 .map(id -> users.findById(id).orElse(null))
                 .filter(java.util.Objects::nonNull)
                 .toList();
     }
 
     public List<Long> listFriendIds(long userId) {
-        return friendships.findFriendshipsOfUser(userId).stream()
+        List<Long> ids = friendships.findFriendshipsOfUser(userId).stream()
                 .map(f -> f.getUser1Id().equals(userId) ? f.getUser2Id() : f.getUser1Id())
-                .filter(id -> !authClient.isFrozen(id))
                 .toList();
+        Set<Long> frozen = authClient.frozenAmong(ids);
+        return frozen.isEmpty() ? ids : ids.stream().filter(id -> !frozen.contains(id)).toList();
     }
 
     @Transactional
     public void removeFriend(long a, long b) {
-        friendships.findByUsers(a, b).ifPresent(friendships::delete);
+        friendships.findByUsers(a, b).ifPresent(f -> {
+            friendships.delete(f);
+            friendshipEvents.changedAfterCommit(a, b, false);
+        });
     }
 
     public Map<String, Object> friendStatus(long callerId, String otherNickname) {
@@ -124,14 +127,18 @@ public class FriendService {
     }
 
     public List<FriendRequest> incoming(long userId) {
-        return requests.findByToUserIdAndStatus(userId, FriendRequest.Status.PENDING).stream()
-                .filter(r -> !authClient.isFrozen(r.getFromUserId()))
+        List<FriendRequest> pending = requests.findByToUserIdAndStatus(userId, FriendRequest.Status.PENDING);
+        Set<Long> frozen = authClient.frozenAmong(pending.stream().map(FriendRequest::getFromUserId).toList());
+        return pending.stream()
+                .filter(r -> !frozen.contains(r.getFromUserId()))
                 .toList();
     }
 
     public List<FriendRequest> outgoing(long userId) {
-        return requests.findByFromUserIdAndStatus(userId, FriendRequest.Status.PENDING).stream()
-                .filter(r -> !authClient.isFrozen(r.getToUserId()))
+        List<FriendRequest> pending = requests.findByFromUserIdAndStatus(userId, FriendRequest.Status.PENDING);
+        Set<Long> frozen = authClient.frozenAmong(pending.stream().map(FriendRequest::getToUserId).toList());
+        return pending.stream()
+                .filter(r -> !frozen.contains(r.getToUserId()))
                 .toList();
     }
 
@@ -171,6 +178,7 @@ public class FriendService {
                 .user2Id(u2)
                 .createdAt(LocalDateTime.now())
                 .build());
+        friendshipEvents.changedAfterCommit(u1, u2, true);
     }
 
     public UserProfile fetch(long id) {
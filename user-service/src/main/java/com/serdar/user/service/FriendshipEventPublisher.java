@@ -0,0 +1,47 @@
+package com.serdar.user.service;
+
+import com.serdar.common.cache.FriendshipChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Announces friendship changes to chat-service, whose presence audiences
+ * include friends. Best-effort: a lost event is healed when the cached
+ * audience expires.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FriendshipEventPublisher {
+
+    private final RabbitTemplate rabbit;
+
+    /** Publishes once the surrounding transaction commits, so a rollback never leaks. */
+    public void changedAfterCommit(long userA, long userB, boolean friends) {
+        FriendshipChangedEvent event = new FriendshipChangedEvent(userA, userB, friends);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event);
+            }
+        });
+    }
+
+    private void publish(FriendshipChangedEvent event) {
+        try {
+            rabbit.convertAndSend(FriendshipChangedEvent.EXCHANGE, "", event);
+        } catch (AmqpException e) {
+            log.warn("Friendship event for users {} and {} not published: {}",
+                    event.userA(), event.userB(), e.getMessage());
+        }
+    }
+}
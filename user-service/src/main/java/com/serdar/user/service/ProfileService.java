@@ -3,6 +3,7 @@ package com.serdar.user.service;
 import com.serdar.common.ServiceException;
 import com.serdar.user.client.AuthClient;
 import com.serdar.user.search.UserSearchIndexService;
+import com.serdar.user.entity.Friendship;
 import com.serdar.user.entity.UserProfile;
 import com.serdar.user.repository.FriendRequestRepository;
 import com.serdar.user.repository.FriendshipRepository;
@@ -25,6 +26,7 @@ public class ProfileService {
     private final FriendshipRepository friendships;
     private final FriendRequestRepository friendRequests;
     private final UserBlockRepository userBlocks;
+    private final FriendshipEventPublisher friendshipEvents;
 
     @Transactional
     public UserProfile createProfile(long userId, String email, String nickname, String name, String surname) {
@@ -153,6 +155,9 @@ public class ProfileService {
         String previousPhotoUrl = profile == null ? null : profile.getProfileImageUrl();
 
         friendRequests.deleteAllForUser(userId);
+        for (Friendship f : friendships.findFriendshipsOfUser(userId)) {
+            friendshipEvents.changedAfterCommit(f.getUser1Id(), f.getUser2Id(), false);
+        }
         friendships.deleteAllForUser(userId);
         userBlocks.deleteAllForUser(userId);
         if (profile != null) {
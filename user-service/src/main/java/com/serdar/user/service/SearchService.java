@@ -33,22 +33,22 @@ public class SearchService {
 
         Set<Long> myFriends = Set.copyOf(friendService.listFriendIds(callerId));
 
-        List<Long> ids;
+        List<UserProfile> hits;
         try {
-            ids = searchIndex.searchIds(keyword, 50);
+            hits = searchIndex.searchIds(keyword, 50).stream()
+                    .filter(id -> !exclusions.contains(id))
+                    .map(users::findById)
+                    .flatMap(java.util.Optional::stream)
+                    .toList();
         } catch (Exception e) {
-            return users.search(keyword).stream()
+            hits = users.search(keyword).stream()
                     .filter(u -> !exclusions.contains(u.getId()))
-                    .filter(u -> !authClient.isFrozen(u.getId()))
-                    .map(u -> toResult(u, myFriends))
                     .toList();
         }
 
-        return ids.stream()
-                .filter(id -> !exclusions.contains(id))
-                .map(users::findById)
-                .flatMap(java.util.Optional::stream)
-                .filter(u -> !authClient.isFrozen(u.getId()))
+        Set<Long> frozen = authClient.frozenAmong(hits.stream().map(UserProfile::getId).toList());
+        return hits.stream()
+                .filter(u -> !frozen.contains(u.getId()))
                 .map(u -> toResult(u, myFriends))
                 .collect(Collectors.toList());
     }